@@ -0,0 +1,33 @@
+package com.example.cafe_backend.config;
+
+import java.time.Duration;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@Configuration
+public class CacheConfig {
+    public static final String REPORTS_PAST = "reports-past";
+    public static final String REPORTS_LIVE = "reports-live";
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        // cửa sổ đã qua hẳn không đổi nữa: chỉ giới hạn kích thước
+        manager.registerCustomCache(REPORTS_PAST, Caffeine.newBuilder()
+                .maximumSize(5_000)
+                .recordStats()
+                .build());
+        // cửa sổ có "hôm nay": bị xóa khi markPaid/cancel chạm tới, TTL ngắn để an toàn
+        manager.registerCustomCache(REPORTS_LIVE, Caffeine.newBuilder()
+                .maximumSize(500)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .recordStats()
+                .build());
+        return manager;
+    }
+}
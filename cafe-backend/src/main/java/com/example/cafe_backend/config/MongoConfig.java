@@ -0,0 +1,17 @@
+package com.example.cafe_backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions.BigDecimalRepresentation;
+
+@Configuration
+public class MongoConfig {
+
+    // BigDecimal -> Decimal128 (mặc định Spring Data ghi thành String): tiền luôn là số trong Mongo
+    // nên aggregation $sum/$multiply trực tiếp được, không cần $convert
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return MongoCustomConversions.create(adapter -> adapter.bigDecimal(BigDecimalRepresentation.DECIMAL128));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.cafe_backend.controller;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.example.cafe_backend.maintenance.MaintenanceJobRunner;
+import com.example.cafe_backend.model.MaintenanceJobState;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/admin/maintenance/jobs")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN','ROOT')")
+public class AdminMaintenanceController {
+    private final MaintenanceJobRunner jobRunner;
+
+    @GetMapping
+    public ResponseEntity<List<MaintenanceJobState>> list() {
+        return ResponseEntity.ok(jobRunner.list());
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<MaintenanceJobState> get(@PathVariable String name) {
+        return ResponseEntity.ok(jobRunner.get(name));
+    }
+
+    // chạy nền; theo dõi tiến độ qua GET /{name}. Job FAILED chạy tiếp từ checkpoint
+    @PostMapping("/{name}")
+    public ResponseEntity<MaintenanceJobState> start(@PathVariable String name) {
+        return ResponseEntity.accepted().body(jobRunner.start(name));
+    }
+
+    // chạy lại từ đầu, bỏ checkpoint
+    @PostMapping("/{name}/restart")
+    public ResponseEntity<MaintenanceJobState> restart(@PathVariable String name) {
+        return ResponseEntity.accepted().body(jobRunner.restart(name));
+    }
+}
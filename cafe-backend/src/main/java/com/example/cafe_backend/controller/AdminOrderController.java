@@ -0,0 +1,67 @@
+package com.example.cafe_backend.controller;
+
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.cafe_backend.model.OrderStatus;
+import com.example.cafe_backend.model.PaymentStatus;
+import com.example.cafe_backend.service.OrderExportService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/admin/orders")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN','ROOT')")
+public class AdminOrderController {
+    private final OrderExportService orderExportService;
+
+    // Export cho kế toán: format=ndjson|csv, dateField=paidAt|createdAt, from/to ISO-8601, gzip=true -> file .gz
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false, defaultValue = "ndjson") String format,
+                                                        @RequestParam(required = false, defaultValue = "paidAt") String dateField,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                        @RequestParam(required = false) OrderStatus status,
+                                                        @RequestParam(required = false) PaymentStatus paymentStatus,
+                                                        @RequestParam(required = false, defaultValue = "false") boolean gzip) {
+        OrderExportService.Format fmt = "csv".equalsIgnoreCase(format)
+                ? OrderExportService.Format.CSV : OrderExportService.Format.NDJSON;
+        OrderExportService.ExportRequest req = OrderExportService.ExportRequest.builder()
+                .format(fmt)
+                .dateField("createdAt".equalsIgnoreCase(dateField)
+                        ? OrderExportService.DateField.CREATED_AT : OrderExportService.DateField.PAID_AT)
+                .from(from)
+                .to(to)
+                .status(status)
+                .paymentStatus(paymentStatus)
+                .build();
+
+        String filename = "orders." + (fmt == OrderExportService.Format.CSV ? "csv" : "ndjson") + (gzip ? ".gz" : "");
+        MediaType type = gzip ? MediaType.parseMediaType("application/gzip")
+                : fmt == OrderExportService.Format.CSV ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gz = new GZIPOutputStream(out, 64 * 1024);
+                orderExportService.write(req, gz);
+                gz.finish();
+            } else {
+                orderExportService.write(req, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(type)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.cafe_backend.controller;
 
+import java.io.IOException;
 import java.util.List;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.example.cafe_backend.dto.BulkProductResult;
 import com.example.cafe_backend.dto.ProductRequest;
 import com.example.cafe_backend.model.Product;
+import com.example.cafe_backend.service.ProductBulkService;
+import com.example.cafe_backend.service.ProductSearchIndex;
 import com.example.cafe_backend.service.ProductService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
@@ -21,6 +28,7 @@ import lombok.RequiredArgsConstructor;
 @PreAuthorize("hasAnyRole('ADMIN','ROOT')")
 public class AdminProductController {
     private final ProductService productService;
+    private final ProductBulkService productBulkService;
 
     @PostMapping
     public ResponseEntity<Product> create(@Valid @RequestBody ProductRequest req) {
@@ -32,11 +40,32 @@ public class AdminProductController {
         return ResponseEntity.ok(productService.listAll());
     }
 
+    // như /api/products/search nhưng gồm cả món đang tắt
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductSearchIndex.SearchHit>> search(@RequestParam String q,
+                                                                     @RequestParam(required = false, defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.search(q, limit, true));
+    }
+
+    // import hàng loạt: mảng JSON hoặc CSV có header (id,name,description,imageUrl,price,available).
+    // ordered=true: 1 dòng sai thì không ghi gì, lỗi khi ghi thì dừng; mặc định ghi mọi dòng hợp lệ
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, "text/csv" })
+    public ResponseEntity<BulkProductResult> bulk(HttpServletRequest request,
+                                                  @RequestParam(required = false, defaultValue = "false") boolean ordered) throws IOException {
+        return ResponseEntity.ok(productBulkService.importStream(request.getInputStream(), request.getContentType(), ordered));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Product> update(@PathVariable String id, @RequestBody ProductRequest req) {
         return ResponseEntity.ok(productService.update(id, req));
     }
 
+    // upload ảnh (multipart "file"): thumbnail 64/256/512 được tạo ngay, không cần mạng
+    @PostMapping(value = "/{id}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Product> uploadImage(@PathVariable String id, @RequestParam("file") MultipartFile file) throws IOException {
+        return ResponseEntity.ok(productService.uploadImage(id, file.getBytes()));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id) {
         productService.delete(id);
@@ -3,21 +3,37 @@ package com.example.cafe_backend.controller;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.example.cafe_backend.maintenance.BackfillPaidAtJob;
+import com.example.cafe_backend.maintenance.MaintenanceJobRunner;
+import com.example.cafe_backend.maintenance.RebuildRollupsJob;
+import com.example.cafe_backend.model.MaintenanceJobState;
+import com.example.cafe_backend.service.FulfillmentLatencyTracker;
+import com.example.cafe_backend.service.PaidOrderColumnStore;
+import com.example.cafe_backend.service.ReportCache;
+import com.example.cafe_backend.service.ReportComparisonService;
 import com.example.cafe_backend.service.ReportService;
+import com.example.cafe_backend.service.TableOccupancyService;
+import com.example.cafe_backend.service.TrendingProductsTracker;
 
 import lombok.RequiredArgsConstructor;
 
+import static org.springframework.http.HttpStatus.*;
+
 @RestController
 @RequestMapping("/api/admin/reports")
 @RequiredArgsConstructor
 @PreAuthorize("hasAnyRole('ADMIN','ROOT')")
 public class AdminReportController {
     private final ReportService reportService;
+    private final ReportComparisonService comparisonService;
+    private final MaintenanceJobRunner jobRunner;
 
     @GetMapping("/daily")
     public ResponseEntity<ReportService.DailyReportResult> daily(@RequestParam String date,
@@ -48,10 +64,114 @@ public class AdminReportController {
         return ResponseEntity.ok(reportService.topProducts(s, e, z, limit));
     }
 
-    // Admin maintenance: backfill missing paidAt for legacy paid orders
+    // Dữ liệu cho cả trang Reports trong 1 request (totals, top products, theo giờ, theo trạng thái)
+    @GetMapping("/dashboard")
+    public ResponseEntity<ReportService.DashboardResult> dashboard(@RequestParam String start,
+                                                                   @RequestParam String end,
+                                                                   @RequestParam(required = false, defaultValue = "10") int limit,
+                                                                   @RequestParam(required = false) String zone) {
+        LocalDate s = LocalDate.parse(start);
+        LocalDate e = LocalDate.parse(end);
+        ZoneId z = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+        return ResponseEntity.ok(reportService.dashboard(s, e, z, limit));
+    }
+
+    // so sánh nhiều kỳ: period=YYYY-MM-DD..YYYY-MM-DD lặp lại, kỳ đầu tiên là gốc để tính delta
+    @GetMapping("/compare")
+    public ResponseEntity<ReportComparisonService.ComparisonResult> compare(@RequestParam List<String> period,
+                                                                            @RequestParam(required = false, defaultValue = "5") int limit,
+                                                                            @RequestParam(required = false) String zone) {
+        ZoneId z = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+        List<ReportComparisonService.Period> periods = period.stream().map(p -> {
+            int sep = p.indexOf("..");
+            if (sep < 0) {
+                throw new ResponseStatusException(BAD_REQUEST, "period must be start..end: " + p);
+            }
+            return new ReportComparisonService.Period(LocalDate.parse(p.substring(0, sep)), LocalDate.parse(p.substring(sep + 2)));
+        }).toList();
+        return ResponseEntity.ok(comparisonService.compare(periods, z, limit));
+    }
+
+    // top sản phẩm gần đúng trong N phút gần nhất (tối đa 60), không query Mongo
+    @GetMapping("/top-products/live")
+    public ResponseEntity<List<TrendingProductsTracker.TrendingItem>> liveTopProducts(
+            @RequestParam(required = false, defaultValue = "15") int windowMinutes,
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        return ResponseEntity.ok(reportService.liveTopProducts(windowMinutes, limit));
+    }
+
+    // độ trễ fulfillment (CONFIRM, PREPARE, HANDOFF, TOTAL); groupBy = stage | mix | hour
+    @GetMapping("/latency")
+    public ResponseEntity<List<FulfillmentLatencyTracker.LatencyStats>> latency(@RequestParam String start,
+                                                                                @RequestParam String end,
+                                                                                @RequestParam(required = false, defaultValue = "stage") String groupBy,
+                                                                                @RequestParam(required = false) String zone) {
+        LocalDate s = LocalDate.parse(start);
+        LocalDate e = LocalDate.parse(end);
+        ZoneId z = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+        FulfillmentLatencyTracker.GroupBy g = "mix".equalsIgnoreCase(groupBy) ? FulfillmentLatencyTracker.GroupBy.MIX
+                : "hour".equalsIgnoreCase(groupBy) ? FulfillmentLatencyTracker.GroupBy.HOUR
+                : FulfillmentLatencyTracker.GroupBy.STAGE;
+        return ResponseEntity.ok(reportService.latency(s, e, z, g));
+    }
+
+    // bàn: số lượt, thời gian ngồi trung bình, thời gian trống, tỉ lệ lấp đầy ghế
+    @GetMapping("/occupancy")
+    public ResponseEntity<TableOccupancyService.OccupancyReport> occupancy(@RequestParam String start,
+                                                                           @RequestParam String end,
+                                                                           @RequestParam(required = false) String zone) {
+        LocalDate s = LocalDate.parse(start);
+        LocalDate e = LocalDate.parse(end);
+        ZoneId z = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+        return ResponseEntity.ok(reportService.occupancy(s, e, z));
+    }
+
+    // cắt lát đơn đã thanh toán: groupBy = table | hourOfWeek | guests | user | product, lọc thêm theo tableId/userId
+    @GetMapping("/slice")
+    public ResponseEntity<List<PaidOrderColumnStore.SliceRow>> slice(@RequestParam String start,
+                                                                     @RequestParam String end,
+                                                                     @RequestParam(required = false, defaultValue = "table") String groupBy,
+                                                                     @RequestParam(required = false) String tableId,
+                                                                     @RequestParam(required = false) String userId,
+                                                                     @RequestParam(required = false) String zone) {
+        LocalDate s = LocalDate.parse(start);
+        LocalDate e = LocalDate.parse(end);
+        ZoneId z = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+        PaidOrderColumnStore.Dimension d = switch (groupBy.toLowerCase()) {
+            case "hourofweek" -> PaidOrderColumnStore.Dimension.HOUR_OF_WEEK;
+            case "guests" -> PaidOrderColumnStore.Dimension.GUESTS;
+            case "user" -> PaidOrderColumnStore.Dimension.USER;
+            case "product" -> PaidOrderColumnStore.Dimension.PRODUCT;
+            default -> PaidOrderColumnStore.Dimension.TABLE;
+        };
+        return ResponseEntity.ok(reportService.slice(s, e, z, d, tableId, userId));
+    }
+
+    @GetMapping("/slice/stats")
+    public ResponseEntity<PaidOrderColumnStore.Stats> sliceStats() {
+        return ResponseEntity.ok(reportService.columnStoreStats());
+    }
+
+    // hit/miss/eviction của cache báo cáo
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, ReportCache.CacheStatsView>> cacheStats() {
+        return ResponseEntity.ok(reportService.cacheStats());
+    }
+
+    // Admin maintenance: backfill missing paidAt for legacy paid orders (chạy nền qua MaintenanceJobRunner)
     @PostMapping("/maintenance/backfill-paidAt")
     public ResponseEntity<String> backfillPaidAt() {
-        long fixed = reportService.backfillPaidAt();
-        return ResponseEntity.ok("fixed=" + fixed);
+        return ResponseEntity.ok(describe(jobRunner.start(BackfillPaidAtJob.NAME)));
+    }
+
+    // Admin maintenance: recompute hourly revenue/product rollups from raw orders
+    @PostMapping("/maintenance/rebuild-rollups")
+    public ResponseEntity<String> rebuildRollups() {
+        return ResponseEntity.ok(describe(jobRunner.start(RebuildRollupsJob.NAME)));
+    }
+
+    private static String describe(MaintenanceJobState s) {
+        return "job=" + s.getId() + " status=" + s.getStatus()
+                + " (progress: GET /api/admin/maintenance/jobs/" + s.getId() + ")";
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.example.cafe_backend.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.http.ResponseEntity;
@@ -7,9 +8,12 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import com.example.cafe_backend.dto.CreateTableRequest;
+import com.example.cafe_backend.model.Booking;
 import com.example.cafe_backend.model.CafeTable;
 import com.example.cafe_backend.model.TableStatus;
+import com.example.cafe_backend.service.BookingService;
 import com.example.cafe_backend.service.TableService;
+import com.example.cafe_backend.service.TableWriteRetrier;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +24,8 @@ import lombok.RequiredArgsConstructor;
 @PreAuthorize("hasAnyRole('ADMIN','ROOT')")
 public class AdminTableController {
     private final TableService tableService;
+    private final TableWriteRetrier tableWriteRetrier;
+    private final BookingService bookingService;
 
     @PostMapping
     public ResponseEntity<CafeTable> create(@Valid @RequestBody CreateTableRequest req) {
@@ -31,6 +37,13 @@ public class AdminTableController {
         return ResponseEntity.ok(tableService.listAll());
     }
 
+    // khách vãng lai: tự chọn bàn trống vừa nhất và giữ cho nhóm (RESERVED, hết hạn sau holdMinutes)
+    @PostMapping("/seat")
+    public ResponseEntity<CafeTable> seat(@RequestParam int guests,
+                                          @RequestParam(required = false) Integer holdMinutes) {
+        return ResponseEntity.ok(tableService.seatWalkIn(guests, holdMinutes));
+    }
+
     @PutMapping("/{id}/status/{status}")
     public ResponseEntity<CafeTable> updateStatus(@PathVariable String id, @PathVariable TableStatus status) {
         return ResponseEntity.ok(tableService.updateStatus(id, status));
@@ -42,4 +55,27 @@ public class AdminTableController {
         tableService.release(id);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    // bàn nào hay bị ghi đè đồng thời (xung đột @Version) và bao nhiêu lần phải thử lại
+    @GetMapping("/contention")
+    public ResponseEntity<List<TableWriteRetrier.TableContention>> contention() {
+        return ResponseEntity.ok(tableWriteRetrier.contention());
+    }
+
+    @DeleteMapping("/contention")
+    public ResponseEntity<Void> resetContention() {
+        tableWriteRetrier.reset();
+        return ResponseEntity.noContent().build();
+    }
+
+    // lịch đặt bàn của 1 ngày (YYYY-MM-DD), gồm cả booking đã hủy
+    @GetMapping("/bookings")
+    public ResponseEntity<List<Booking>> bookings(@RequestParam String date) {
+        return ResponseEntity.ok(bookingService.day(LocalDate.parse(date)));
+    }
+
+    @DeleteMapping("/bookings/{bookingId}")
+    public ResponseEntity<Booking> cancelBooking(@PathVariable String bookingId) {
+        return ResponseEntity.ok(bookingService.cancel(bookingId, null, true));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.cafe_backend.controller;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.cafe_backend.dto.StreamTokenResponse;
+import com.example.cafe_backend.event.LiveEventStream;
+import com.example.cafe_backend.repository.UserRepository;
+import com.example.cafe_backend.security.JwtUtil;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+public class EventStreamController {
+    private final LiveEventStream liveEventStream;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+
+    // EventSource trên browser không gửi được header Authorization: lấy token ngắn hạn (Bearer như thường)
+    // rồi mở new EventSource("/api/events?access_token=..."); hết hạn thì lấy token mới trước khi reconnect
+    @PostMapping("/token")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamTokenResponse> token(Authentication authentication) {
+        String token = jwtUtil.generateStreamToken((UserDetails) authentication.getPrincipal());
+        return ResponseEntity.ok(new StreamTokenResponse(token, jwtUtil.getStreamTokenMs()));
+    }
+
+    // SSE stream cho màn hình bếp / sàn; filter theo bàn và trạng thái (vd status=CONFIRMED,PREPARING).
+    // Admin/Root nhận mọi order (như GET /api/orders); user thường chỉ nhận order của chính mình + thay đổi bàn
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public SseEmitter stream(@RequestParam(required = false) String tableId,
+                             @RequestParam(required = false) String status,
+                             @RequestHeader(name = "Last-Event-ID", required = false) String lastEventIdHeader,
+                             @RequestParam(name = "lastEventId", required = false) String lastEventIdParam,
+                             Authentication authentication) {
+        Set<String> statuses = status == null || status.isBlank() ? Set.of()
+                : Arrays.stream(status.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                        .map(String::toUpperCase).collect(Collectors.toSet());
+        String last = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        Long lastEventId = null;
+        if (last != null && !last.isBlank()) {
+            try {
+                lastEventId = Long.parseLong(last.trim());
+            } catch (NumberFormatException ignored) {
+                // id lạ (vd từ instance khác) -> coi như kết nối mới
+            }
+        }
+        boolean staff = authentication.getAuthorities().stream()
+                .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()) || "ROLE_ROOT".equals(a.getAuthority()));
+        String ownerUserId = staff ? null
+                : userRepository.findByUsername(authentication.getName()).map(u -> u.getId()).orElse(authentication.getName());
+        return liveEventStream.subscribe(tableId, statuses, lastEventId, ownerUserId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.cafe_backend.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.service.ProductImageService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+import static org.springframework.http.HttpStatus.*;
+
+// Thumbnail theo hash nội dung: URL không bao giờ đổi nội dung -> cache 1 năm, immutable
+@RestController
+@RequestMapping("/api/images")
+@RequiredArgsConstructor
+public class ImageController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ProductImageService imageService;
+
+    @GetMapping("/{hash}/{size}")
+    public void thumbnail(@PathVariable String hash, @PathVariable int size,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = imageService.thumbnail(hash, size);
+        if (file == null) {
+            throw new ResponseStatusException(NOT_FOUND, "Image not found");
+        }
+        String etag = "\"" + hash + "-" + size + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        long length = Files.size(file);
+        response.setContentType(file.getFileName().toString().endsWith(".png") ? "image/png" : "image/jpeg");
+        response.setContentLengthLong(length);
+
+        // Tomcat NIO: giao file cho sendfile() của kernel, không copy qua heap
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return;
+        }
+        Files.copy(file, response.getOutputStream());
+    }
+}
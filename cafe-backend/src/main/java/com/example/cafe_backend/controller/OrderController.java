@@ -1,12 +1,19 @@
 package com.example.cafe_backend.controller;
 
+import java.time.Instant;
+
 import org.springframework.security.core.Authentication;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import com.example.cafe_backend.dto.CreateOrderRequest;
+import com.example.cafe_backend.dto.OrderPage;
+import com.example.cafe_backend.dto.OrderSearchRequest;
+import com.example.cafe_backend.model.FulfillmentStatus;
 import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.OrderStatus;
 import com.example.cafe_backend.model.PaymentStatus;
 import com.example.cafe_backend.repository.UserRepository;
 import com.example.cafe_backend.service.OrderService;
@@ -24,10 +31,12 @@ public class OrderController {
     @PostMapping
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Order> create(@Valid @RequestBody CreateOrderRequest req,
+                                        @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
                                         Authentication authentication) {
         String createdBy = authentication.getName();
         String userId = userRepository.findByUsername(createdBy).map(u -> u.getId()).orElse(createdBy);
-        return ResponseEntity.ok(orderService.createOrder(req, userId));
+        String key = idempotencyKey == null || idempotencyKey.isBlank() ? null : idempotencyKey.trim();
+        return ResponseEntity.ok(orderService.createOrder(req, userId, key));
     }
 
     @GetMapping("/{id}")
@@ -43,6 +52,33 @@ public class OrderController {
         return ResponseEntity.ok(orderService.listAll(open));
     }
 
+    // Admin/Root: filter + keyset paging; summary=true bỏ items cho payload nhẹ
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('ADMIN','ROOT')")
+    public ResponseEntity<OrderPage> search(@RequestParam(required = false) OrderStatus status,
+                                            @RequestParam(required = false) FulfillmentStatus fulfillmentStatus,
+                                            @RequestParam(required = false) PaymentStatus paymentStatus,
+                                            @RequestParam(required = false) String tableId,
+                                            @RequestParam(required = false) String userId,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false, defaultValue = "50") int limit,
+                                            @RequestParam(required = false, defaultValue = "false") boolean summary) {
+        OrderSearchRequest req = OrderSearchRequest.builder()
+                .status(status)
+                .fulfillmentStatus(fulfillmentStatus)
+                .paymentStatus(paymentStatus)
+                .tableId(tableId)
+                .createdByUserId(userId)
+                .from(from) // ISO-8601, vd 2025-01-01T00:00:00Z
+                .to(to)
+                .limit(limit)
+                .summary(summary)
+                .build();
+        return ResponseEntity.ok(orderService.search(req, cursor));
+    }
+
     // lịch sử order của chính user
     @GetMapping("/my")
     @PreAuthorize("isAuthenticated()")
@@ -1,26 +1,71 @@
 package com.example.cafe_backend.controller;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-import com.example.cafe_backend.model.Product;
+import com.example.cafe_backend.service.MenuCatalog;
+import com.example.cafe_backend.service.ProductImageService;
+import com.example.cafe_backend.service.ProductSearchIndex;
 import com.example.cafe_backend.service.ProductService;
+import com.example.cafe_backend.service.PublicPayloadCache;
 
 import lombok.RequiredArgsConstructor;
 
+import static org.springframework.http.HttpStatus.*;
+
 @RestController
 @RequestMapping("/api/products")
 @RequiredArgsConstructor
 public class ProductController {
+    private final PublicPayloadCache payloadCache;
     private final ProductService productService;
+    private final MenuCatalog menuCatalog;
 
-    // Public menu: list only available products, sorted by name asc
+    // Public menu: list only available products, sorted by name asc.
+    // Bytes dựng sẵn từ MenuCatalog (không query Mongo); tablet gửi If-None-Match -> 304
     @GetMapping
-    public ResponseEntity<List<Product>> listAvailable() {
-        return ResponseEntity.ok(productService.listAvailable());
+    public ResponseEntity<byte[]> listAvailable(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return payloadCache.menu().toResponse(ifNoneMatch, acceptEncoding,
+                CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic().mustRevalidate());
+    }
+
+    // ảnh nhỏ cho tablet: chuyển tới URL theo hash (cache vĩnh viễn); chưa có thumbnail thì về ảnh gốc
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<Void> thumbnail(@PathVariable String id,
+                                          @RequestParam(required = false, defaultValue = "256") int size) {
+        MenuCatalog.Item item = menuCatalog.current().get(id);
+        if (item == null) {
+            throw new ResponseStatusException(NOT_FOUND, "Product not found");
+        }
+        String target = item.imageHash() != null
+                ? "/api/images/" + item.imageHash() + "/" + ProductImageService.normalizeSize(size)
+                : item.imageUrl();
+        if (target == null || target.isBlank()) {
+            throw new ResponseStatusException(NOT_FOUND, "Product has no image");
+        }
+        return ResponseEntity.status(FOUND)
+                .location(URI.create(target))
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(60)).cachePublic())
+                .build();
+    }
+
+    // tìm món: không phân biệt dấu/hoa thường, khớp tiền tố và gần đúng ("ca phe", "tra sua", "capuc")
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductSearchIndex.SearchHit>> search(@RequestParam String q,
+                                                                     @RequestParam(required = false, defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.search(q, limit, false));
     }
 }
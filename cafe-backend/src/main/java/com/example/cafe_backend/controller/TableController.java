@@ -1,14 +1,22 @@
 package com.example.cafe_backend.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import com.example.cafe_backend.dto.BookingRequest;
 import com.example.cafe_backend.dto.ReserveTableRequest;
+import com.example.cafe_backend.model.Booking;
 import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.service.BookingService;
+import com.example.cafe_backend.service.PublicPayloadCache;
 import com.example.cafe_backend.service.TableService;
 
 import jakarta.validation.Valid;
@@ -19,10 +27,14 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class TableController {
     private final TableService tableService;
+    private final PublicPayloadCache payloadCache;
+    private final BookingService bookingService;
 
+    // trạng thái bàn đổi liên tục: luôn revalidate, nhưng 304 không chạm Mongo
     @GetMapping
-    public ResponseEntity<List<CafeTable>> list() {
-        return ResponseEntity.ok(tableService.listAll());
+    public ResponseEntity<byte[]> list(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return payloadCache.tables().toResponse(ifNoneMatch, acceptEncoding, CacheControl.noCache().cachePublic());
     }
 
     // trả về các bàn đã đặt bởi user hiện tại (status=RESERVED)
@@ -38,4 +50,27 @@ public class TableController {
     public ResponseEntity<CafeTable> reserve(@PathVariable String id, @Valid @RequestBody ReserveTableRequest req) {
         return ResponseEntity.ok(tableService.reserve(id, req));
     }
-}
\ No newline at end of file
+
+    // bàn nào trống cho N khách từ start (giờ quán, vd 2025-10-20T19:00) trong minutes phút
+    @GetMapping("/availability")
+    public ResponseEntity<List<BookingService.AvailableTable>> availability(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false, defaultValue = "120") int minutes,
+            @RequestParam int guests) {
+        return ResponseEntity.ok(bookingService.availability(start, minutes, guests));
+    }
+
+    // đặt trước 1 khung giờ; trùng giờ với booking khác của bàn -> 409
+    @PostMapping("/{id}/bookings")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Booking> book(@PathVariable String id, @Valid @RequestBody BookingRequest req,
+                                        Authentication authentication) {
+        return ResponseEntity.ok(bookingService.book(id, req, authentication.getName()));
+    }
+
+    @DeleteMapping("/bookings/{bookingId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Booking> cancelBooking(@PathVariable String bookingId, Authentication authentication) {
+        return ResponseEntity.ok(bookingService.cancel(bookingId, authentication.getName(), false));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.cafe_backend.dto;
+
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class BookingRequest {
+    // giờ địa phương của quán, vd 2025-10-20T19:00
+    @NotNull
+    private LocalDateTime start;
+
+    @Min(15)
+    @Max(360)
+    private int minutes = 120;
+
+    @Min(1)
+    private int guests;
+
+    private String note;
+}
@@ -0,0 +1,35 @@
+package com.example.cafe_backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BulkProductResult {
+    private boolean ordered;
+    private int created;
+    private int updated;
+    private int invalid;
+    private int failed;
+    private int skipped;
+    private List<Row> rows;
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        INVALID,  // không qua kiểm tra, không ghi
+        FAILED,   // lỗi khi ghi Mongo
+        SKIPPED   // ordered: không chạy vì có dòng trước đó lỗi
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Row {
+        private int row;      // 1-based, theo thứ tự trong file
+        private Status status;
+        private String id;
+        private String error;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.cafe_backend.dto;
+
+import java.math.BigDecimal;
+
+import lombok.Data;
+
+// 1 dòng import: có id -> cập nhật sản phẩm đó; không có id -> upsert theo tên (không phân biệt hoa thường)
+@Data
+public class BulkProductRow {
+    private String id;
+    private String name;
+    private String description;
+    private String imageUrl;
+    private BigDecimal price;
+    private Boolean available;
+}
@@ -0,0 +1,16 @@
+package com.example.cafe_backend.dto;
+
+import java.util.List;
+
+import com.example.cafe_backend.model.Order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class OrderPage {
+    private List<Order> items;
+    // null khi đã hết dữ liệu
+    private String nextCursor;
+}
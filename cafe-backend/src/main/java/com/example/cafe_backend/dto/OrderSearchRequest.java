@@ -0,0 +1,32 @@
+package com.example.cafe_backend.dto;
+
+import java.time.Instant;
+
+import com.example.cafe_backend.model.FulfillmentStatus;
+import com.example.cafe_backend.model.OrderStatus;
+import com.example.cafe_backend.model.PaymentStatus;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OrderSearchRequest {
+    private OrderStatus status;
+    private FulfillmentStatus fulfillmentStatus;
+    private PaymentStatus paymentStatus;
+    private String tableId;
+    private String createdByUserId;
+
+    // createdAt window [from, to)
+    private Instant from;
+    private Instant to;
+
+    // keyset cursor: trang sau bắt đầu sau (createdAt, id) này
+    private Instant afterCreatedAt;
+    private String afterId;
+
+    private int limit;
+    // true -> bỏ items để trả về bản tóm tắt nhẹ
+    private boolean summary;
+}
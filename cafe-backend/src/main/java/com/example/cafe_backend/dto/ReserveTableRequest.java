@@ -1,5 +1,6 @@
 package com.example.cafe_backend.dto;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.Data;
 
@@ -9,4 +10,9 @@ public class ReserveTableRequest {
     private int guestCount;
 
     private String note;
+
+    // thời gian giữ bàn; null = mặc định app.reservations.hold-minutes
+    @Min(1)
+    @Max(240)
+    private Integer holdMinutes;
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+package com.example.cafe_backend.event;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.model.Order;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+
+// Fan-out of order/table changes to kitchen and floor displays over Server-Sent Events.
+// Keeps a bounded ring of recent events so a reconnecting client can resume from Last-Event-ID.
+// Each display has its own bounded outbox; one that falls too far behind is dropped and has to reconnect.
+@Component
+public class LiveEventStream {
+    private static final Logger log = LoggerFactory.getLogger(LiveEventStream.class);
+
+    private static final int BUFFER_SIZE = 1024;
+    // số event chờ gửi tối đa cho 1 client; đầy = client treo/chậm -> đóng kết nối, client reconnect và replay
+    private static final int OUTBOX_SIZE = 256;
+    // số order/bàn nhớ trạng thái gần nhất (LRU) để biết event chuyển từ trạng thái nào
+    private static final int LAST_STATUS_SIZE = 8192;
+
+    private final Deque<LiveEvent> buffer = new ArrayDeque<>(BUFFER_SIZE);
+    private final Map<String, String> lastStatus = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > LAST_STATUS_SIZE;
+        }
+    };
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // mỗi subscriber được drain bởi tối đa 1 thread tại 1 thời điểm (giữ thứ tự); client treo chỉ giữ thread của nó
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "sse-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    // id bắt đầu từ epoch millis lúc khởi động nên vẫn tăng dần qua các lần restart:
+    // Last-Event-ID của lần chạy trước luôn nhỏ hơn mọi id mới và bị phát hiện là đã mất event
+    private long sequence = System.currentTimeMillis();
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent e) {
+        Order o = e.getOrder();
+        String status = o.getFulfillmentStatus() != null ? o.getFulfillmentStatus().name() : null;
+        append("order", e.getType().name(), o.getId(), o.getTableId(), status, o);
+    }
+
+    @EventListener
+    public void onTableChanged(TableChangedEvent e) {
+        CafeTable t = e.getTable();
+        append("table", "UPDATED", t.getId(), t.getId(), t.getStatus() != null ? t.getStatus().name() : null, t);
+    }
+
+    // ownerUserId != null: chỉ nhận order event của order do user đó tạo (khách), null = nhân viên thấy tất cả
+    public SseEmitter subscribe(String tableId, Set<String> statuses, Long lastEventId, String ownerUserId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber sub = new Subscriber(emitter, tableId, statuses, ownerUserId);
+        emitter.onCompletion(() -> subscribers.remove(sub));
+        emitter.onTimeout(() -> subscribers.remove(sub));
+        emitter.onError(ex -> subscribers.remove(sub));
+
+        synchronized (this) {
+            List<LiveEvent> replay = new ArrayList<>();
+            boolean gap = false;
+            long head = sequence;
+            if (lastEventId != null) {
+                long firstKept = buffer.isEmpty() ? head + 1 : buffer.peekFirst().getId();
+                // client bỏ lỡ nhiều hơn buffer giữ được, hoặc id không thuộc lần chạy này (lớn hơn head)
+                // -> báo client tải lại toàn bộ
+                gap = lastEventId > head || firstKept > lastEventId + 1;
+                for (LiveEvent ev : buffer) {
+                    if (ev.getId() > lastEventId && sub.accepts(ev)) replay.add(ev);
+                }
+            }
+            if (gap) sub.enqueue(Subscriber.resync(head));
+            for (LiveEvent ev : replay) sub.enqueue(Subscriber.event(ev));
+            subscribers.add(sub);
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private synchronized void append(String kind, String type, String id, String tableId, String status, Object data) {
+        String previous = lastStatus.put(kind + ":" + id, status);
+        LiveEvent ev = new LiveEvent(++sequence, kind, type, tableId, status, previous, Instant.now(), data);
+        if (buffer.size() == BUFFER_SIZE) buffer.pollFirst();
+        buffer.addLast(ev);
+        for (Subscriber sub : subscribers) {
+            if (sub.accepts(ev)) sub.enqueue(Subscriber.event(ev));
+        }
+    }
+
+    // keep idle connections alive through proxies; costs one comment line per display
+    @Scheduled(fixedRate = 25_000)
+    public void heartbeat() {
+        for (Subscriber sub : subscribers) sub.enqueue(SseEmitter.event().comment("ping"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        for (Subscriber sub : subscribers) sub.emitter.complete();
+    }
+
+    @Value
+    public static class LiveEvent {
+        long id;
+        String kind;     // order | table
+        String type;     // CREATED, PAID, ... hoặc UPDATED cho bàn
+        String tableId;
+        String status;   // fulfillmentStatus của order / status của bàn
+        String previousStatus; // trạng thái ở event trước của cùng order/bàn; null = mới hoặc không còn nhớ
+        Instant at;
+        Object data;
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String tableId;
+        private final Set<String> statuses;
+        private final String ownerUserId;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> outbox = new ArrayBlockingQueue<>(OUTBOX_SIZE);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, String tableId, Set<String> statuses, String ownerUserId) {
+            this.emitter = emitter;
+            this.tableId = tableId;
+            this.statuses = statuses;
+            this.ownerUserId = ownerUserId;
+        }
+
+        boolean accepts(LiveEvent ev) {
+            if (ownerUserId != null && ev.getData() instanceof Order o && !ownerUserId.equals(o.getCreatedByUserId())) {
+                return false;
+            }
+            if (tableId != null && !tableId.equals(ev.getTableId())) return false;
+            if (statuses == null || statuses.isEmpty() || statuses.contains(ev.getStatus())) return true;
+            // event đưa order/bàn RA KHỎI trạng thái đang lọc vẫn phải tới (vd bếp lọc CONFIRMED,PREPARING cần biết đơn đã READY
+            // để gỡ khỏi màn hình); không nhớ trạng thái trước thì gửi luôn, thừa còn hơn màn hình kẹt đơn cũ
+            if (ev.getPreviousStatus() != null) return statuses.contains(ev.getPreviousStatus());
+            return !"CREATED".equals(ev.getType());
+        }
+
+        static SseEmitter.SseEventBuilder event(LiveEvent ev) {
+            return SseEmitter.event().id(String.valueOf(ev.getId())).name(ev.getKind()).data(ev);
+        }
+
+        static SseEmitter.SseEventBuilder resync(long head) {
+            return SseEmitter.event().id(String.valueOf(head)).name("resync").data("resync");
+        }
+
+        // không bao giờ chặn người gọi (append chạy trên thread xử lý request)
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) return;
+            if (!outbox.offer(event)) {
+                log.debug("Dropping slow SSE subscriber: {} events pending", outbox.size());
+                close(null);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException ex) {
+                    draining.set(false); // đang shutdown
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = outbox.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException ex) {
+                        log.debug("Dropping SSE subscriber: {}", ex.getMessage());
+                        close(ex);
+                    }
+                }
+                draining.set(false);
+                // event tới sau lần poll cuối nhưng trước khi nhả cờ: tự nhận drain tiếp
+            } while (!closed && !outbox.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void close(Throwable ex) {
+            if (closed) return;
+            closed = true;
+            subscribers.remove(this);
+            outbox.clear();
+            if (ex != null) {
+                emitter.completeWithError(ex);
+            } else {
+                emitter.complete();
+            }
+        }
+    }
+}
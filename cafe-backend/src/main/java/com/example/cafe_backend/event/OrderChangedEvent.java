@@ -0,0 +1,22 @@
+package com.example.cafe_backend.event;
+
+import com.example.cafe_backend.model.Order;
+
+import lombok.Value;
+
+// published by OrderService after every successful write, carries the new document
+@Value
+public class OrderChangedEvent {
+    Type type;
+    Order order;
+
+    public enum Type {
+        CREATED,
+        CONFIRMED,
+        PREPARING,
+        READY,
+        SERVED,
+        PAID,
+        CANCELLED
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.cafe_backend.event;
+
+import com.example.cafe_backend.model.CafeTable;
+
+import lombok.Value;
+
+// published by TableService/OrderService after every successful table write, carries the new document
+@Value
+public class TableChangedEvent {
+    CafeTable table;
+}
@@ -1,9 +1,11 @@
 package com.example.cafe_backend.exception;
 
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -57,6 +59,36 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(status).body(body);
     }
 
+    // ngày/giờ client gửi sai định dạng (LocalDate.parse/Instant.parse trong controller) là lỗi của request
+    @ExceptionHandler(DateTimeParseException.class)
+    public ResponseEntity<ErrorResponse> handleDateTimeParse(DateTimeParseException ex, WebRequest request) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        String path = extractPath(request);
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(Instant.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message("Invalid date/time '" + ex.getParsedString() + "', expected ISO-8601")
+                .path(path)
+                .build();
+        return ResponseEntity.status(status).body(body);
+    }
+
+    // @Version conflict that survived the service-level retries: client should reload and try again
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLock(OptimisticLockingFailureException ex, WebRequest request) {
+        HttpStatus status = HttpStatus.CONFLICT; // 409
+        String path = extractPath(request);
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(Instant.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message("The record was modified concurrently, please reload and retry")
+                .path(path)
+                .build();
+        return ResponseEntity.status(status).body(body);
+    }
+
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<ErrorResponse> handleAuthentication(AuthenticationException ex, WebRequest request) {
         HttpStatus status = HttpStatus.UNAUTHORIZED; // 401
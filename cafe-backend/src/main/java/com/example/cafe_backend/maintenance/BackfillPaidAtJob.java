@@ -0,0 +1,64 @@
+package com.example.cafe_backend.maintenance;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.PaymentStatus;
+import com.example.cafe_backend.service.RevenueRollupService;
+import com.mongodb.client.model.Filters;
+
+import lombok.RequiredArgsConstructor;
+
+// Legacy orders: PAID nhưng thiếu paidAt -> paidAt = updatedAt ?? createdAt ?? now, làm trên server theo batch _id
+@Component
+@RequiredArgsConstructor
+public class BackfillPaidAtJob implements MaintenanceJob {
+    public static final String NAME = "backfill-paidAt";
+    private static final int BATCH = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final RevenueRollupService revenueRollupService;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void run(JobContext ctx) {
+        String last = ctx.checkpoint();
+        List<Bson> pipeline = List.of(new Document("$set", new Document("paidAt",
+                new Document("$ifNull", List.of("$updatedAt",
+                        new Document("$ifNull", List.of("$createdAt", "$$NOW")))))));
+        long total = 0;
+        while (true) {
+            Criteria c = Criteria.where("paymentStatus").is(PaymentStatus.PAID).and("paidAt").is(null);
+            if (last != null) c = c.and("_id").gt(new ObjectId(last));
+            Query q = Query.query(c).with(Sort.by("_id")).limit(BATCH);
+            q.fields().include("_id");
+            List<ObjectId> ids = mongoTemplate.find(q, Document.class, mongoTemplate.getCollectionName(Order.class))
+                    .stream().map(d -> d.getObjectId("_id")).toList();
+            if (ids.isEmpty()) break;
+
+            long modified = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Order.class))
+                    .updateMany(Filters.and(Filters.in("_id", ids), Filters.eq("paidAt", null)), pipeline)
+                    .getModifiedCount();
+            last = ids.get(ids.size() - 1).toHexString();
+            ctx.checkpoint(last, modified);
+            total += modified;
+        }
+        // các order vừa có paidAt chưa nằm trong rollup
+        if (total > 0) {
+            revenueRollupService.rebuild();
+        }
+    }
+}
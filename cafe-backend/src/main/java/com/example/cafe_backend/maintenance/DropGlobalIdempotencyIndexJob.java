@@ -0,0 +1,32 @@
+package com.example.cafe_backend.maintenance;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.model.Order;
+
+import lombok.RequiredArgsConstructor;
+
+// Idempotency-Key giờ unique theo (createdByUserId, idempotencyKey); index unique cũ chỉ trên idempotencyKey
+// (auto-index tạo trước đây) vẫn còn trong DB đã deploy và chặn 2 user dùng trùng key -> drop nó đi
+@Component
+@RequiredArgsConstructor
+public class DropGlobalIdempotencyIndexJob implements MaintenanceJob {
+    public static final String NAME = "drop-global-idempotency-index";
+    private static final String LEGACY_INDEX = "idempotencyKey";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void run(JobContext ctx) {
+        var ops = mongoTemplate.indexOps(Order.class);
+        boolean present = ops.getIndexInfo().stream().anyMatch(i -> LEGACY_INDEX.equals(i.getName()));
+        if (present) ops.dropIndex(LEGACY_INDEX);
+        ctx.checkpoint("done", present ? 1 : 0);
+    }
+}
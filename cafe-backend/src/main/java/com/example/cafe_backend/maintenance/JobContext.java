@@ -0,0 +1,9 @@
+package com.example.cafe_backend.maintenance;
+
+public interface JobContext {
+
+    String checkpoint();
+
+    // persist progress after a batch: new checkpoint + number of documents it changed
+    void checkpoint(String checkpoint, long processedDelta);
+}
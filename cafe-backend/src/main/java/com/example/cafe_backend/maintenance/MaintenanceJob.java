@@ -0,0 +1,11 @@
+package com.example.cafe_backend.maintenance;
+
+// An admin data fix that works in batches and records a checkpoint after each one,
+// so MaintenanceJobRunner can resume it after a crash or restart.
+public interface MaintenanceJob {
+
+    String name();
+
+    // resume from ctx.checkpoint() (null on a fresh run)
+    void run(JobContext ctx);
+}
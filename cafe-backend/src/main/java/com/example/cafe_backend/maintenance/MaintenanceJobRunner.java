@@ -0,0 +1,176 @@
+package com.example.cafe_backend.maintenance;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.model.MaintenanceJobState;
+import com.example.cafe_backend.repository.MaintenanceJobStateRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import static org.springframework.http.HttpStatus.*;
+
+// Runs MaintenanceJobs one at a time in the background and keeps their progress in maintenance_jobs
+@Service
+public class MaintenanceJobRunner {
+    private static final Logger log = LoggerFactory.getLogger(MaintenanceJobRunner.class);
+
+    private final Map<String, MaintenanceJob> jobs;
+    private final MongoTemplate mongoTemplate;
+    private final MaintenanceJobStateRepository stateRepository;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "maintenance-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MaintenanceJobRunner(List<MaintenanceJob> jobs, MongoTemplate mongoTemplate,
+                                MaintenanceJobStateRepository stateRepository) {
+        this.jobs = jobs.stream().collect(Collectors.toMap(MaintenanceJob::name, Function.identity()));
+        this.mongoTemplate = mongoTemplate;
+        this.stateRepository = stateRepository;
+    }
+
+    // job còn RUNNING lúc khởi động = lần trước bị crash giữa chừng -> chạy tiếp từ checkpoint
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        for (MaintenanceJobState s : stateRepository.findByStatus(MaintenanceJobState.Status.RUNNING)) {
+            MaintenanceJob job = jobs.get(s.getId());
+            if (job != null) {
+                log.info("Resuming maintenance job {} from checkpoint {}", s.getId(), s.getCheckpoint());
+                submit(job);
+            }
+        }
+    }
+
+    // job FAILED thì chạy tiếp từ checkpoint đã lưu (như lúc khởi động lại sau crash); còn lại chạy từ đầu
+    public MaintenanceJobState start(String name) {
+        return claim(name, false);
+    }
+
+    // bỏ checkpoint cũ, chạy lại toàn bộ (vd sau khi sửa tay dữ liệu mà batch trước đã đi qua)
+    public MaintenanceJobState restart(String name) {
+        return claim(name, true);
+    }
+
+    private MaintenanceJobState claim(String name, boolean fresh) {
+        MaintenanceJob job = jobs.get(name);
+        if (job == null) {
+            throw new ResponseStatusException(NOT_FOUND, "Unknown job: " + name);
+        }
+        Instant now = Instant.now();
+        boolean resume = !fresh && stateRepository.findById(name)
+                .map(s -> s.getStatus() == MaintenanceJobState.Status.FAILED)
+                .orElse(false);
+        // chỉ 1 lần chạy cho mỗi job: claim có điều kiện status != RUNNING (resume: đúng trạng thái FAILED vừa đọc)
+        Criteria c = Criteria.where("_id").is(name).and("status");
+        Query q = Query.query(resume ? c.is(MaintenanceJobState.Status.FAILED) : c.ne(MaintenanceJobState.Status.RUNNING));
+        Update u = new Update()
+                .set("status", MaintenanceJobState.Status.RUNNING)
+                .set("updatedAt", now)
+                .set("finishedAt", null)
+                .set("error", null);
+        if (!resume) {
+            u.set("checkpoint", null)
+                    .set("processed", 0L)
+                    .set("startedAt", now);
+        }
+        MaintenanceJobState state;
+        try {
+            state = mongoTemplate.findAndModify(q, u,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), MaintenanceJobState.class);
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(CONFLICT, "Job already running: " + name);
+        }
+        if (resume) {
+            log.info("Resuming failed maintenance job {} from checkpoint {}", name, state.getCheckpoint());
+        }
+        submit(job);
+        return state;
+    }
+
+    public List<MaintenanceJobState> list() {
+        return stateRepository.findAll();
+    }
+
+    public MaintenanceJobState get(String name) {
+        return stateRepository.findById(name)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Job has never run: " + name));
+    }
+
+    private void submit(MaintenanceJob job) {
+        executor.execute(() -> execute(job));
+    }
+
+    private void execute(MaintenanceJob job) {
+        String name = job.name();
+        MaintenanceJobState state = stateRepository.findById(name).orElse(null);
+        if (state == null || state.getStatus() != MaintenanceJobState.Status.RUNNING) {
+            return;
+        }
+        Context ctx = new Context(name, state.getCheckpoint());
+        try {
+            job.run(ctx);
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(name)), new Update()
+                    .set("status", MaintenanceJobState.Status.COMPLETED)
+                    .set("updatedAt", Instant.now())
+                    .set("finishedAt", Instant.now()), MaintenanceJobState.class);
+            log.info("Maintenance job {} completed", name);
+        } catch (RuntimeException e) {
+            log.error("Maintenance job {} failed at checkpoint {}", name, ctx.checkpoint, e);
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(name)), new Update()
+                    .set("status", MaintenanceJobState.Status.FAILED)
+                    // getMessage() hay null (NPE...): lưu cả tên class exception
+                    .set("error", e.toString())
+                    .set("updatedAt", Instant.now())
+                    .set("finishedAt", Instant.now()), MaintenanceJobState.class);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class Context implements JobContext {
+        private final String name;
+        private String checkpoint;
+
+        Context(String name, String checkpoint) {
+            this.name = name;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public String checkpoint() {
+            return checkpoint;
+        }
+
+        @Override
+        public void checkpoint(String checkpoint, long processedDelta) {
+            this.checkpoint = checkpoint;
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(name)), new Update()
+                    .set("checkpoint", checkpoint)
+                    .inc("processed", processedDelta)
+                    .set("updatedAt", Instant.now()), MaintenanceJobState.class);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.cafe_backend.maintenance;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.service.RevenueRollupService;
+import com.mongodb.client.model.Filters;
+
+import lombok.RequiredArgsConstructor;
+
+// Legacy orders lưu tiền/số lượng lẫn kiểu (string, double, long...): ép totalAmount, items.unitPrice -> decimal,
+// items.quantity -> int theo batch _id, rồi gắn $jsonSchema validator để ghi sai kiểu bị từ chối
+@Component
+@RequiredArgsConstructor
+public class NormalizeOrderMoneyJob implements MaintenanceJob {
+    public static final String NAME = "normalize-order-money";
+    private static final Logger log = LoggerFactory.getLogger(NormalizeOrderMoneyJob.class);
+    private static final int BATCH = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final RevenueRollupService revenueRollupService;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void run(JobContext ctx) {
+        String collection = mongoTemplate.getCollectionName(Order.class);
+        String last = ctx.checkpoint();
+        // giá trị không ép được giữ nguyên để còn sửa tay, không âm thầm thành 0
+        List<Bson> pipeline = List.of(new Document("$set", new Document()
+                .append("totalAmount", convert("$totalAmount", "decimal"))
+                .append("items", new Document("$cond", List.of(new Document("$isArray", "$items"),
+                        new Document("$map", new Document("input", "$items")
+                                .append("as", "it")
+                                .append("in", new Document("$mergeObjects", List.of("$$it", new Document()
+                                        .append("unitPrice", convert("$$it.unitPrice", "decimal"))
+                                        .append("quantity", convert("$$it.quantity", "int")))))),
+                        "$items")))));
+        Document mistyped = new Document("$nor", List.of(schema()));
+
+        while (true) {
+            Criteria c = last != null ? Criteria.where("_id").gt(new ObjectId(last)) : new Criteria();
+            Query q = Query.query(c).with(Sort.by("_id")).limit(BATCH);
+            q.fields().include("_id");
+            List<ObjectId> ids = mongoTemplate.find(q, Document.class, collection)
+                    .stream().map(d -> d.getObjectId("_id")).toList();
+            if (ids.isEmpty()) break;
+
+            long modified = mongoTemplate.getCollection(collection)
+                    .updateMany(Filters.and(Filters.in("_id", ids), mistyped), pipeline)
+                    .getModifiedCount();
+            last = ids.get(ids.size() - 1).toHexString();
+            ctx.checkpoint(last, modified);
+        }
+
+        // validationLevel moderate: chỉ kiểm document mới hoặc document đang hợp lệ
+        mongoTemplate.executeCommand(new Document("collMod", collection)
+                .append("validator", schema())
+                .append("validationLevel", "moderate")
+                .append("validationAction", "error"));
+        // rollup + cache dựng từ dữ liệu string có thể sai: dựng lại (rebuild cũng xóa ReportCache)
+        revenueRollupService.rebuild();
+
+        long remaining = mongoTemplate.getCollection(collection).countDocuments(mistyped);
+        if (remaining > 0) {
+            log.warn("{} orders still have mistyped money fields after migration", remaining);
+            throw new IllegalStateException(remaining + " orders have totalAmount/items values that cannot be converted;"
+                    + " fix them and rerun " + NAME);
+        }
+    }
+
+    private static Document schema() {
+        return new Document("$jsonSchema", new Document("bsonType", "object")
+                .append("properties", new Document()
+                        .append("totalAmount", new Document("bsonType", "decimal"))
+                        .append("items", new Document("bsonType", "array")
+                                .append("items", new Document("bsonType", "object")
+                                        .append("properties", new Document()
+                                                .append("unitPrice", new Document("bsonType", "decimal"))
+                                                .append("quantity", new Document("bsonType", "int")))))));
+    }
+
+    private static Document convert(String input, String to) {
+        return new Document("$convert", new Document("input", input).append("to", to)
+                .append("onError", input).append("onNull", input));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.cafe_backend.maintenance;
+
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.service.RevenueRollupService;
+
+import lombok.RequiredArgsConstructor;
+
+// một bước duy nhất ($out thay collection nguyên khối) nên không cần checkpoint giữa chừng
+@Component
+@RequiredArgsConstructor
+public class RebuildRollupsJob implements MaintenanceJob {
+    public static final String NAME = "rebuild-rollups";
+
+    private final RevenueRollupService revenueRollupService;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void run(JobContext ctx) {
+        revenueRollupService.rebuild();
+        ctx.checkpoint("done", 0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.cafe_backend.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// đặt bàn trước theo khung giờ [start, end); cả ngày phục vụ được nạp bằng 1 query trên index (serviceDate, start)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("bookings")
+@CompoundIndexes({
+    @CompoundIndex(name = "serviceDate_start", def = "{'serviceDate': 1, 'start': 1}"),
+    // kiểm tra trùng giờ của 1 bàn trực tiếp trên Mongo khi đặt
+    @CompoundIndex(name = "tableId_start", def = "{'tableId': 1, 'start': 1}")
+})
+public class Booking {
+    @Id
+    private String id;
+
+    private String tableId;
+    private int tableNumber;
+
+    // ngày (yyyy-MM-dd, giờ địa phương của quán) chứa start
+    private String serviceDate;
+    private Instant start;
+    private Instant end;
+
+    private int guests;
+    private String note;
+    private String userId;
+
+    @Builder.Default
+    private BookingStatus status = BookingStatus.CONFIRMED;
+
+    @Builder.Default
+    private Instant createdAt = Instant.now();
+    private Instant cancelledAt;
+}
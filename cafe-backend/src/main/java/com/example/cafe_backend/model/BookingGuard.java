@@ -0,0 +1,23 @@
+package com.example.cafe_backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 1 document / bàn: seq tăng mỗi lần có booking mới cho bàn đó. Đặt bàn = kiểm tra trùng giờ + insert rồi tăng seq
+// có điều kiện (seq vẫn như lúc đọc); 2 instance cùng đặt 1 bàn thì chỉ 1 bên tăng được, bên kia hủy booking vừa ghi.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("booking_guards")
+public class BookingGuard {
+    @Id
+    private String tableId;
+
+    private long seq;
+}
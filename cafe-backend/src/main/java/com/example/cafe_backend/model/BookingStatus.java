@@ -0,0 +1,6 @@
+package com.example.cafe_backend.model;
+
+public enum BookingStatus {
+    CONFIRMED,   // đang giữ khung giờ
+    CANCELLED    // đã hủy, không còn chặn khung giờ
+}
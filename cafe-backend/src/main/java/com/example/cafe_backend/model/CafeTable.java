@@ -14,7 +14,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document("tables")
@@ -34,11 +34,19 @@ public class CafeTable {
     // order hiện tại (nếu có)
     private String currentOrderId;
 
+    // lượt ngồi hiện tại (khi OCCUPIED): bắt đầu từ lúc nào, bao nhiêu khách
+    private Instant occupiedAt;
+    private Integer guestCount;
+
     private String note;
 
     // user đã đặt bàn (nếu trạng thái RESERVED)
     private String reservedByUserId;
     private Instant reservedAt;
+    // giữ chỗ tới lúc này; quá hạn mà chưa có khách thì tự trả bàn (null = giữ tới khi admin release)
+    private Instant holdExpiresAt;
+    // nhân viên đã xếp khách vãng lai vào bàn (không phải người đặt bàn nên không ghi vào reservedByUserId)
+    private String seatedBy;
 
     // optimistic lock để tránh double-reserve
     @Version
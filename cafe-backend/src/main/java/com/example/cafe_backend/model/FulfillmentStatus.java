@@ -1,10 +1,25 @@
 package com.example.cafe_backend.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum FulfillmentStatus {
     PENDING,
     CONFIRMED,
     PREPARING,
     READY,
     SERVED,
-    CANCELLED
+    CANCELLED;
+
+    // state machine: chỉ cho đi tiến (có thể bỏ qua bước), hủy được từ mọi trạng thái chưa hủy
+    public Set<FulfillmentStatus> allowedFrom() {
+        Set<FulfillmentStatus> from = EnumSet.noneOf(FulfillmentStatus.class);
+        for (FulfillmentStatus s : values()) {
+            if (s == CANCELLED) continue;
+            if (this == CANCELLED || s.ordinal() < ordinal()) {
+                from.add(s);
+            }
+        }
+        return from;
+    }
 }
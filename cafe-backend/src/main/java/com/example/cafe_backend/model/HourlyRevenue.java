@@ -0,0 +1,28 @@
+package com.example.cafe_backend.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// rollup doanh thu theo giờ (UTC), cộng dồn bằng $inc khi order được thanh toán
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("revenue_hourly")
+public class HourlyRevenue {
+    // đầu giờ UTC của bucket
+    @Id
+    private Instant hour;
+
+    private BigDecimal revenue;
+    private long ordersCount;
+    private long guests;
+}
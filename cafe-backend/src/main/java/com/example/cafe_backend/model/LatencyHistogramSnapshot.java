@@ -0,0 +1,33 @@
+package com.example.cafe_backend.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// HdrHistogram (nén, base64) của 1 stage fulfillment trong 1 giờ cho 1 nhóm đơn
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("latency_histograms")
+public class LatencyHistogramSnapshot {
+    // hour|stage|mix
+    @Id
+    private String id;
+
+    @Indexed
+    private Instant hour;
+    private String stage;
+    private String mix;
+
+    private String histogram;
+    private long count;
+    private Instant updatedAt;
+}
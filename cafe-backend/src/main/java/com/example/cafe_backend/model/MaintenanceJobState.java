@@ -0,0 +1,40 @@
+package com.example.cafe_backend.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// tiến độ + checkpoint của 1 maintenance job, để chạy tiếp sau khi crash
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("maintenance_jobs")
+public class MaintenanceJobState {
+    // tên job
+    @Id
+    private String id;
+
+    private Status status;
+
+    // vị trí đã xử lý xong (thường là _id cuối cùng của batch)
+    private String checkpoint;
+    private long processed;
+
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+    private String error;
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
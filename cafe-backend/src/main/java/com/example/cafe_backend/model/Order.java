@@ -30,7 +30,16 @@ import lombok.NoArgsConstructor;
     // New: optimize queries matching by paymentStatus + paidAt
     @CompoundIndex(name = "paymentStatus_paidAt_idx", def = "{paymentStatus: 1, paidAt: 1}"),
     // Optimize top-products report (unwind items then match productId)
-    @CompoundIndex(name = "status_createdAt_items_product_idx", def = "{status: 1, createdAt: 1, 'items.productId': 1}")
+    @CompoundIndex(name = "status_createdAt_items_product_idx", def = "{status: 1, createdAt: 1, 'items.productId': 1}"),
+    // Keyset-paged admin search: each filter + (createdAt, _id) sort key
+    @CompoundIndex(name = "createdAt_id_idx", def = "{createdAt: -1, _id: -1}"),
+    @CompoundIndex(name = "paymentStatus_createdAt_id_idx", def = "{paymentStatus: 1, createdAt: -1, _id: -1}"),
+    @CompoundIndex(name = "fulfillmentStatus_createdAt_id_idx", def = "{fulfillmentStatus: 1, createdAt: -1, _id: -1}"),
+    @CompoundIndex(name = "tableId_createdAt_id_idx", def = "{tableId: 1, createdAt: -1, _id: -1}"),
+    @CompoundIndex(name = "createdByUserId_createdAt_id_idx", def = "{createdByUserId: 1, createdAt: -1, _id: -1}"),
+    // Idempotency-Key chỉ unique trong phạm vi 1 user; order không gửi key thì không vào index
+    @CompoundIndex(name = "createdByUserId_idempotencyKey_idx", def = "{createdByUserId: 1, idempotencyKey: 1}",
+            unique = true, partialFilter = "{idempotencyKey: {$exists: true}}")
 })
 public class Order {
     @Id
@@ -43,12 +52,18 @@ public class Order {
     @Indexed
     private String createdByUserId;
 
+    // client-supplied Idempotency-Key so retried POST /api/orders returns the same order (scoped per user)
+    private String idempotencyKey;
+
     @Valid
     private List<OrderItem> items;
 
     @Min(0)
     private BigDecimal totalAmount;
 
+    // version of the in-memory menu catalog used to price this order
+    private Long catalogVersion;
+
     // Backward-compat primary status (still maintained to not break reports/features)
     @Builder.Default
     private OrderStatus status = OrderStatus.PENDING;
@@ -27,6 +27,10 @@ public class Product {
     @Indexed(unique = true)
     private String name;
 
+    // tên chữ thường/NFC/gọn khoảng trắng: kiểm tra trùng tên bằng index thay vì query không phân biệt hoa thường
+    @Indexed(unique = true, sparse = true)
+    private String normalizedName;
+
     private String description;
 
     @Min(0)
@@ -38,6 +42,9 @@ public class Product {
     // Optional image URL for product thumbnail
     private String imageUrl;
 
+    // sha-256 của ảnh gốc đã tải về/đã upload -> thumbnail ở /api/images/{imageHash}/{size}
+    private String imageHash;
+
     // timestamps
     @Builder.Default
     private Instant createdAt = Instant.now();
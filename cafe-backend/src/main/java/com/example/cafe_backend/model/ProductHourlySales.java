@@ -0,0 +1,31 @@
+package com.example.cafe_backend.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// rollup số lượng/doanh thu theo sản phẩm và giờ (UTC)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("product_hourly")
+@CompoundIndex(name = "hour_product_idx", def = "{hour: 1, productId: 1}", unique = true)
+public class ProductHourlySales {
+    @Id
+    private String id;
+
+    private Instant hour;
+    private String productId;
+    private String name;
+    private long quantity;
+    private BigDecimal revenue;
+}
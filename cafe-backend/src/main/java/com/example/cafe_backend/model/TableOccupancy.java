@@ -0,0 +1,36 @@
+package com.example.cafe_backend.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 1 lượt ngồi đã kết thúc của 1 bàn (append-only): OCCUPIED lúc start, trả bàn lúc end
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("table_occupancy")
+@CompoundIndex(name = "tableId_end", def = "{'tableId': 1, 'end': 1}")
+public class TableOccupancy {
+    @Id
+    private String id;
+
+    private String tableId;
+    private int tableNumber;
+    private int capacity;
+    private String orderId;
+    // null khi bàn được set OCCUPIED tay (không qua order)
+    private Integer guests;
+
+    private Instant start;
+    @Indexed
+    private Instant end;
+}
@@ -0,0 +1,33 @@
+package com.example.cafe_backend.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// bộ đếm lượt ngồi theo bàn và giờ (UTC), $inc mỗi khi 1 lượt kết thúc
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("table_occupancy_hourly")
+@CompoundIndex(name = "hour_table_idx", def = "{hour: 1, tableId: 1}", unique = true)
+public class TableOccupancyHourly {
+    @Id
+    private String id;
+
+    private Instant hour;
+    private String tableId;
+    // lượt BẮT ĐẦU trong giờ này và tổng thời lượng đầy đủ của chúng (cho thời gian ngồi trung bình)
+    private long turns;
+    private long durationMs;
+    // phần thời gian có khách rơi vào giờ này (lượt dài được chia ra nhiều giờ)
+    private long occupiedMs;
+    private long guestMs;
+}
@@ -0,0 +1,13 @@
+package com.example.cafe_backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.example.cafe_backend.model.Booking;
+import com.example.cafe_backend.model.BookingStatus;
+
+public interface BookingRepository extends MongoRepository<Booking, String> {
+    List<Booking> findByServiceDateAndStatusOrderByStartAsc(String serviceDate, BookingStatus status);
+    List<Booking> findByServiceDateOrderByStartAsc(String serviceDate);
+}
@@ -8,7 +8,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import com.example.cafe_backend.model.CafeTable;
 import com.example.cafe_backend.model.TableStatus;
 
-public interface CafeTableRepository extends MongoRepository<CafeTable, String> {
+public interface CafeTableRepository extends MongoRepository<CafeTable, String>, CafeTableRepositoryCustom {
     Optional<CafeTable> findByTableNumber(int tableNumber);
     boolean existsByTableNumber(int tableNumber);
 
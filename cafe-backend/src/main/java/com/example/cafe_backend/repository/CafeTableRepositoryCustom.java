@@ -0,0 +1,24 @@
+package com.example.cafe_backend.repository;
+
+import java.time.Instant;
+
+import com.example.cafe_backend.model.CafeTable;
+
+// Atomic (single findAndModify/update) operations on the tables collection
+public interface CafeTableRepositoryCustom {
+
+    // flip table to OCCUPIED for orderId only if it is not occupied and fits the guests; null if the claim failed.
+    // heldOnly: only a RESERVED table qualifies (staff has checked the party in), used when a booking is coming up
+    CafeTable claimForOrder(String tableId, String orderId, int guestCount, boolean heldOnly);
+
+    // set table back to AVAILABLE only if it still points at orderId; returns the document as it was
+    // before the release (occupiedAt/guestCount still set, so the caller can close the occupancy interval) or null
+    CafeTable releaseOrder(String tableId, String orderId, Instant at);
+
+    // RESERVED -> AVAILABLE only if the same hold (holdExpiresAt) is still in place; null if the table moved on
+    CafeTable expireHold(String tableId, Instant holdExpiresAt, Instant at);
+
+    // AVAILABLE -> RESERVED (walk-in hold, recorded under seatedBy) only if the table is still free and fits;
+    // null if someone else got it first
+    CafeTable claimForSeating(String tableId, int guestCount, String seatedBy, Instant holdExpiresAt, Instant at);
+}
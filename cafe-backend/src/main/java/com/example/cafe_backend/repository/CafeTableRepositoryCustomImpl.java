@@ -0,0 +1,81 @@
+package com.example.cafe_backend.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.model.TableStatus;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class CafeTableRepositoryCustomImpl implements CafeTableRepositoryCustom {
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public CafeTable claimForOrder(String tableId, String orderId, int guestCount, boolean heldOnly) {
+        Criteria c = Criteria.where("_id").is(tableId).and("capacity").gte(guestCount);
+        Query q = Query.query(heldOnly ? c.and("status").is(TableStatus.RESERVED) : c.and("status").ne(TableStatus.OCCUPIED));
+        Instant now = Instant.now();
+        Update u = new Update()
+                .set("status", TableStatus.OCCUPIED)
+                .set("currentOrderId", orderId)
+                .set("occupiedAt", now)
+                .set("guestCount", guestCount)
+                .unset("holdExpiresAt")
+                .set("updatedAt", now)
+                .inc("version", 1); // keep @Version in step so stale save() calls still fail
+        return mongoTemplate.findAndModify(q, u, FindAndModifyOptions.options().returnNew(true), CafeTable.class);
+    }
+
+    @Override
+    public CafeTable releaseOrder(String tableId, String orderId, Instant at) {
+        Query q = Query.query(Criteria.where("_id").is(tableId).and("currentOrderId").is(orderId));
+        Update u = new Update()
+                .set("status", TableStatus.AVAILABLE)
+                .unset("currentOrderId")
+                .unset("occupiedAt")
+                .unset("guestCount")
+                .unset("seatedBy")
+                .set("updatedAt", at)
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(q, u, FindAndModifyOptions.options().returnNew(false), CafeTable.class);
+    }
+
+    @Override
+    public CafeTable expireHold(String tableId, Instant holdExpiresAt, Instant at) {
+        Query q = Query.query(Criteria.where("_id").is(tableId)
+                .and("status").is(TableStatus.RESERVED)
+                .and("holdExpiresAt").is(holdExpiresAt));
+        Update u = new Update()
+                .set("status", TableStatus.AVAILABLE)
+                .unset("reservedByUserId")
+                .unset("reservedAt")
+                .unset("holdExpiresAt")
+                .unset("seatedBy")
+                .set("updatedAt", at)
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(q, u, FindAndModifyOptions.options().returnNew(true), CafeTable.class);
+    }
+
+    @Override
+    public CafeTable claimForSeating(String tableId, int guestCount, String seatedBy, Instant holdExpiresAt, Instant at) {
+        Query q = Query.query(Criteria.where("_id").is(tableId)
+                .and("status").is(TableStatus.AVAILABLE)
+                .and("capacity").gte(guestCount));
+        Update u = new Update()
+                .set("status", TableStatus.RESERVED)
+                .unset("reservedByUserId")
+                .set("seatedBy", seatedBy)
+                .set("reservedAt", at)
+                .set("holdExpiresAt", holdExpiresAt)
+                .set("updatedAt", at)
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(q, u, FindAndModifyOptions.options().returnNew(true), CafeTable.class);
+    }
+}
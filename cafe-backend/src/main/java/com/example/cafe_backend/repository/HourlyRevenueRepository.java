@@ -0,0 +1,24 @@
+package com.example.cafe_backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.example.cafe_backend.model.HourlyRevenue;
+
+public interface HourlyRevenueRepository extends MongoRepository<HourlyRevenue, Instant> {
+
+    // cộng các bucket giờ trong [start, end) - chi phí theo số bucket, không theo số order
+    @Meta(maxExecutionTimeMs = OrderRepositoryCustom.REPORT_MAX_TIME_MS)
+    @Aggregation(pipeline = {
+        "{ '$match': { '_id': { '$gte': ?0, '$lt': ?1 } } }",
+        "{ '$group': { '_id': null, " +
+            "'totalRevenue': { '$sum': '$revenue' }, " +
+            "'ordersCount': { '$sum': '$ordersCount' }, " +
+            "'guests': { '$sum': '$guests' } } }"
+    })
+    List<OrderRepository.RangeReport> sumRange(Instant startInclusive, Instant endExclusive);
+}
@@ -0,0 +1,12 @@
+package com.example.cafe_backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.example.cafe_backend.model.LatencyHistogramSnapshot;
+
+public interface LatencyHistogramSnapshotRepository extends MongoRepository<LatencyHistogramSnapshot, String> {
+    List<LatencyHistogramSnapshot> findByHourGreaterThanEqualAndHourLessThan(Instant startInclusive, Instant endExclusive);
+}
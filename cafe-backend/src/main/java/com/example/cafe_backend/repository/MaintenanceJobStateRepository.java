@@ -0,0 +1,11 @@
+package com.example.cafe_backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.example.cafe_backend.model.MaintenanceJobState;
+
+public interface MaintenanceJobStateRepository extends MongoRepository<MaintenanceJobState, String> {
+    List<MaintenanceJobState> findByStatus(MaintenanceJobState.Status status);
+}
@@ -0,0 +1,44 @@
+package com.example.cafe_backend.repository;
+
+import org.bson.Document;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.maintenance.NormalizeOrderMoneyJob;
+import com.example.cafe_backend.model.MaintenanceJobState;
+
+import lombok.RequiredArgsConstructor;
+
+// Biểu thức đọc tiền/số lượng của orders trong aggregation. Đơn cũ có thể lưu string/double... nên phải $convert
+// từng document; khi normalize-order-money đã COMPLETED (mọi đơn đã đúng kiểu + $jsonSchema validator chặn ghi sai)
+// thì dùng thẳng field path
+@Component
+@RequiredArgsConstructor
+public class OrderMoneyFields {
+    private final MaintenanceJobStateRepository jobStateRepository;
+
+    // chỉ đổi false -> true: validator đã gắn thì dữ liệu không quay lại kiểu cũ
+    private volatile boolean normalized;
+
+    public boolean normalized() {
+        if (!normalized) {
+            normalized = jobStateRepository.findById(NormalizeOrderMoneyJob.NAME)
+                    .map(s -> s.getStatus() == MaintenanceJobState.Status.COMPLETED)
+                    .orElse(false);
+        }
+        return normalized;
+    }
+
+    // "$field" hoặc { $convert: ... } -> decimal
+    public Object decimal(String field) {
+        return normalized() ? field : convert(field, "decimal");
+    }
+
+    public Object integer(String field) {
+        return normalized() ? field : convert(field, "int");
+    }
+
+    private static Document convert(String field, String to) {
+        return new Document("$convert", new Document("input", field).append("to", to)
+                .append("onError", 0).append("onNull", 0));
+    }
+}
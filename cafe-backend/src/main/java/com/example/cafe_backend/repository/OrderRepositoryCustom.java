@@ -0,0 +1,35 @@
+package com.example.cafe_backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import com.example.cafe_backend.dto.OrderSearchRequest;
+import com.example.cafe_backend.model.Order;
+
+public interface OrderRepositoryCustom {
+
+    // server-side cap (maxTimeMS) cho các aggregation báo cáo: query bị bỏ dở phía client cũng không chạy mãi trên Mongo
+    long REPORT_MAX_TIME_MS = 60_000;
+
+    // apply update only if the order still matches guard; returns the new document or null
+    Order transition(String id, Criteria guard, UpdateDefinition update);
+
+    // filtered listing ordered by (createdAt desc, _id desc), paged with a keyset instead of skip
+    List<Order> search(OrderSearchRequest req);
+
+    // doanh thu/ngày (đã thanh toán) - tính theo thời điểm thanh toán (paidAt)
+    List<OrderRepository.DailyReport> aggregateDailyReport(Instant startInclusive, Instant endExclusive);
+
+    // tổng hợp theo khoảng ngày (start/end) - tính theo paidAt
+    List<OrderRepository.RangeReport> aggregateRangeReport(Instant startInclusive, Instant endExclusive);
+
+    // top sản phẩm theo số lượng và doanh thu - tính theo paidAt
+    List<OrderRepository.TopProduct> aggregateTopProducts(Instant startInclusive, Instant endExclusive, int limit);
+
+    // one $match on the paidAt window, then a $facet with totals / top products / hourly histogram / status breakdown
+    Document dashboard(Instant startInclusive, Instant endExclusive, String timezone, int topLimit);
+}
@@ -0,0 +1,175 @@
+package com.example.cafe_backend.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import com.example.cafe_backend.dto.OrderSearchRequest;
+import com.example.cafe_backend.model.Order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+    private final MongoTemplate mongoTemplate;
+    private final OrderMoneyFields money;
+
+    @Override
+    public Order transition(String id, Criteria guard, UpdateDefinition update) {
+        Query q = Query.query(new Criteria().andOperator(Criteria.where("_id").is(id), guard));
+        return mongoTemplate.findAndModify(q, update, FindAndModifyOptions.options().returnNew(true), Order.class);
+    }
+
+    @Override
+    public List<Order> search(OrderSearchRequest req) {
+        List<Criteria> and = new ArrayList<>();
+        if (req.getStatus() != null) and.add(Criteria.where("status").is(req.getStatus()));
+        if (req.getFulfillmentStatus() != null) and.add(Criteria.where("fulfillmentStatus").is(req.getFulfillmentStatus()));
+        if (req.getPaymentStatus() != null) and.add(Criteria.where("paymentStatus").is(req.getPaymentStatus()));
+        if (req.getTableId() != null) and.add(Criteria.where("tableId").is(req.getTableId()));
+        if (req.getCreatedByUserId() != null) and.add(Criteria.where("createdByUserId").is(req.getCreatedByUserId()));
+        if (req.getFrom() != null || req.getTo() != null) {
+            Criteria range = Criteria.where("createdAt");
+            if (req.getFrom() != null) range = range.gte(req.getFrom());
+            if (req.getTo() != null) range = range.lt(req.getTo());
+            and.add(range);
+        }
+        if (req.getAfterCreatedAt() != null && req.getAfterId() != null) {
+            // (createdAt, _id) < cursor theo thứ tự giảm dần
+            and.add(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(req.getAfterCreatedAt()),
+                    new Criteria().andOperator(
+                            Criteria.where("createdAt").is(req.getAfterCreatedAt()),
+                            Criteria.where("_id").lt(new ObjectId(req.getAfterId())))));
+        }
+
+        Query q = and.isEmpty() ? new Query() : Query.query(new Criteria().andOperator(and));
+        q.with(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("_id"))).limit(req.getLimit());
+        if (req.isSummary()) {
+            q.fields().exclude("items");
+        }
+        return mongoTemplate.find(q, Order.class);
+    }
+
+    @Override
+    public List<OrderRepository.DailyReport> aggregateDailyReport(Instant startInclusive, Instant endExclusive) {
+        return List.copyOf(paidTotals(startInclusive, endExclusive));
+    }
+
+    @Override
+    public List<OrderRepository.RangeReport> aggregateRangeReport(Instant startInclusive, Instant endExclusive) {
+        return List.copyOf(paidTotals(startInclusive, endExclusive));
+    }
+
+    @Override
+    public List<OrderRepository.TopProduct> aggregateTopProducts(Instant startInclusive, Instant endExclusive, int limit) {
+        List<Document> pipeline = List.of(
+                new Document("$match", paidIn(startInclusive, endExclusive)),
+                new Document("$unwind", "$items"),
+                productGroup(),
+                new Document("$project", new Document("_id", 0)
+                        .append("productId", "$_id.productId").append("name", "$_id.name")
+                        .append("quantity", 1).append("revenue", 1)),
+                new Document("$sort", new Document("quantity", -1).append("revenue", -1)),
+                new Document("$limit", limit));
+        return List.copyOf(aggregate(pipeline, ProductTotals.class));
+    }
+
+    private List<Totals> paidTotals(Instant startInclusive, Instant endExclusive) {
+        return aggregate(List.of(new Document("$match", paidIn(startInclusive, endExclusive)), totalsGroup()), Totals.class);
+    }
+
+    private <T> List<T> aggregate(List<Document> pipeline, Class<T> type) {
+        List<T> out = new ArrayList<>();
+        for (Document d : mongoTemplate.getCollection(mongoTemplate.getCollectionName(Order.class)).aggregate(pipeline)
+                .maxTime(REPORT_MAX_TIME_MS, TimeUnit.MILLISECONDS)) {
+            out.add(mongoTemplate.getConverter().read(type, d));
+        }
+        return out;
+    }
+
+    private static Document paidIn(Instant startInclusive, Instant endExclusive) {
+        return new Document("paymentStatus", "PAID").append("paidAt",
+                new Document("$gte", Date.from(startInclusive)).append("$lt", Date.from(endExclusive)));
+    }
+
+    private Document totalsGroup() {
+        return new Document("$group", new Document("_id", null)
+                .append("totalRevenue", new Document("$sum", money.decimal("$totalAmount")))
+                .append("ordersCount", new Document("$sum", 1))
+                .append("guests", new Document("$sum", "$guestCount")));
+    }
+
+    private Document productGroup() {
+        return new Document("$group", new Document("_id", new Document("productId", "$items.productId").append("name", "$items.name"))
+                .append("quantity", new Document("$sum", money.integer("$items.quantity")))
+                .append("revenue", new Document("$sum", new Document("$multiply",
+                        List.of(money.decimal("$items.unitPrice"), money.decimal("$items.quantity"))))));
+    }
+
+    @Override
+    public Document dashboard(Instant startInclusive, Instant endExclusive, String timezone, int topLimit) {
+        Document window = new Document("$gte", Date.from(startInclusive)).append("$lt", Date.from(endExclusive));
+        // doanh thu tính theo paidAt; đếm trạng thái tính trên mọi order tạo trong khoảng (kể cả chưa thanh toán)
+        Document paidInWindow = paidIn(startInclusive, endExclusive);
+        Document createdInWindow = new Document("createdAt", window);
+        Document paidOnly = new Document("$match", paidInWindow);
+        Document createdOnly = new Document("$match", createdInWindow);
+
+        // mỗi nhánh $or đi trên index riêng: (paymentStatus, paidAt) và (createdAt, _id)
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("$or", List.of(paidInWindow, createdInWindow))),
+                new Document("$facet", new Document()
+                        .append("totals", List.of(paidOnly, totalsGroup()))
+                        .append("topProducts", List.of(paidOnly,
+                                new Document("$unwind", "$items"),
+                                productGroup(),
+                                new Document("$sort", new Document("quantity", -1).append("revenue", -1)),
+                                new Document("$limit", topLimit)))
+                        .append("hourly", List.of(paidOnly,
+                                new Document("$group", new Document("_id", new Document("$dateTrunc", new Document("date", "$paidAt")
+                                        .append("unit", "hour").append("timezone", timezone)))
+                                        .append("revenue", new Document("$sum", money.decimal("$totalAmount")))
+                                        .append("ordersCount", new Document("$sum", 1))),
+                                new Document("$sort", new Document("_id", 1))))
+                        .append("byPaymentStatus", List.of(createdOnly,
+                                new Document("$group", new Document("_id", "$paymentStatus").append("count", new Document("$sum", 1)))))
+                        .append("byFulfillmentStatus", List.of(createdOnly,
+                                new Document("$group", new Document("_id", "$fulfillmentStatus").append("count", new Document("$sum", 1))))))
+        );
+        Document result = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Order.class))
+                .aggregate(pipeline).maxTime(REPORT_MAX_TIME_MS, TimeUnit.MILLISECONDS).first();
+        return result != null ? result : new Document();
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Totals implements OrderRepository.DailyReport, OrderRepository.RangeReport {
+        private BigDecimal totalRevenue;
+        private long ordersCount;
+        private long guests;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ProductTotals implements OrderRepository.TopProduct {
+        private String productId;
+        private String name;
+        private long quantity;
+        private BigDecimal revenue;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cafe_backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.example.cafe_backend.model.ProductHourlySales;
+
+public interface ProductHourlySalesRepository extends MongoRepository<ProductHourlySales, String> {
+
+    @Meta(maxExecutionTimeMs = OrderRepositoryCustom.REPORT_MAX_TIME_MS)
+    @Aggregation(pipeline = {
+        "{ '$match': { 'hour': { '$gte': ?0, '$lt': ?1 } } }",
+        "{ '$group': { _id: '$productId', name: { $last: '$name' }, quantity: { $sum: '$quantity' }, revenue: { $sum: '$revenue' } } }",
+        "{ '$project': { _id: 0, productId: '$_id', name: 1, quantity: 1, revenue: 1 } }",
+        "{ '$sort': { quantity: -1, revenue: -1 } }",
+        "{ '$limit': ?2 }"
+    })
+    List<OrderRepository.TopProduct> topProducts(Instant startInclusive, Instant endExclusive, int limit);
+}
@@ -8,12 +8,10 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import com.example.cafe_backend.model.Product;
 
 public interface ProductRepository extends MongoRepository<Product, String> {
-    Optional<Product> findByNameIgnoreCase(String name);
-    boolean existsByNameIgnoreCase(String name);
+    // normalizedName = TextNormalizer.normalizedName(name), có unique index
+    Optional<Product> findByNormalizedName(String normalizedName);
+    boolean existsByNormalizedName(String normalizedName);
 
     // menu cho khách
     List<Product> findByAvailableTrueOrderByNameAsc();
-
-    // search tên gần đúng
-    List<Product> findByNameRegexIgnoreCase(String nameRegex);
 }
\ No newline at end of file
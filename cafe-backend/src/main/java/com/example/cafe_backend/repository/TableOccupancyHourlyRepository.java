@@ -0,0 +1,8 @@
+package com.example.cafe_backend.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.example.cafe_backend.model.TableOccupancyHourly;
+
+public interface TableOccupancyHourlyRepository extends MongoRepository<TableOccupancyHourly, String> {
+}
@@ -23,6 +23,8 @@ import lombok.RequiredArgsConstructor;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    private static final String EVENTS_PATH = "/api/events";
+    private static final String STREAM_TOKEN_PARAM = "access_token";
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
@@ -32,18 +34,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        String token = null;
+        boolean streamOnly = false;
         if (header != null && header.startsWith("Bearer ")) {
-            String token = header.substring(7);
-            if (jwtUtil.validate(token) && SecurityContextHolder.getContext().getAuthentication() == null) {
-                String username = jwtUtil.extractUsername(token);
-                var userDetails = userDetailsService.loadUserByUsername(username);
-
-                var auth = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(auth);
-                log.info("JWT validated for user='{}'. authorities={}", username, userDetails.getAuthorities());
-            }
+            token = header.substring(7);
+        } else if (EVENTS_PATH.equals(request.getServletPath()) && request.getParameter(STREAM_TOKEN_PARAM) != null) {
+            // EventSource không set được header: /api/events nhận stream token qua ?access_token=
+            token = request.getParameter(STREAM_TOKEN_PARAM);
+            streamOnly = true;
+        }
+        if (token != null && jwtUtil.validate(token) && SecurityContextHolder.getContext().getAuthentication() == null
+                // query chỉ nhận stream token (không để JWT đăng nhập dài hạn lọt vào URL); header thì ngược lại
+                && jwtUtil.isStreamToken(token) == streamOnly) {
+            String username = jwtUtil.extractUsername(token);
+            var userDetails = userDetailsService.loadUserByUsername(username);
+
+            var auth = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(auth);
+            log.info("JWT validated for user='{}'. authorities={}", username, userDetails.getAuthorities());
         }
         chain.doFilter(request, response);
     }
@@ -14,6 +14,9 @@ import io.jsonwebtoken.security.Keys;
 
 @Component
 public class JwtUtil {
+    // claim đánh dấu token chỉ dùng để mở SSE /api/events (truyền qua query vì EventSource không gửi được header)
+    public static final String SCOPE_CLAIM = "scope";
+    public static final String EVENTS_SCOPE = "events";
 
     @Value("${app.jwtSecret}")
     private String jwtSecret;
@@ -21,6 +24,9 @@ public class JwtUtil {
     @Value("${app.jwtExpirationMs}")
     private long jwtExpirationMs;
 
+    @Value("${app.events.stream-token-ms:60000}")
+    private long streamTokenMs;
+
     public String generateToken(UserDetails user) {
         var key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
         var roles = user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
@@ -33,6 +39,33 @@ public class JwtUtil {
                 .compact();
     }
 
+    // sống ngắn (nằm trong URL -> có thể vào log proxy), chỉ được kiểm lúc mở kết nối
+    public String generateStreamToken(UserDetails user) {
+        var key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return Jwts.builder()
+                .setSubject(user.getUsername())
+                .claim(SCOPE_CLAIM, EVENTS_SCOPE)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + streamTokenMs))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    public long getStreamTokenMs() {
+        return streamTokenMs;
+    }
+
+    // token đã validate; true nếu là stream token (không được dùng làm Bearer cho API khác)
+    public boolean isStreamToken(String token) {
+        Object scope = Jwts.parserBuilder()
+                .setSigningKey(jwtSecret.getBytes())
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .get(SCOPE_CLAIM);
+        return EVENTS_SCOPE.equals(scope);
+    }
+
     public String extractUsername(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(jwtSecret.getBytes())
@@ -0,0 +1,327 @@
+package com.example.cafe_backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.dto.BookingRequest;
+import com.example.cafe_backend.model.Booking;
+import com.example.cafe_backend.model.BookingGuard;
+import com.example.cafe_backend.model.BookingStatus;
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.repository.BookingRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import static org.springframework.http.HttpStatus.*;
+
+// Đặt bàn trước theo khung giờ. Mỗi bàn có 1 IntervalTree các booking CONFIRMED đã nạp; tìm bàn trống và chặn
+// xếp khách/nhận order vào bàn sắp có booking đều chạy trong RAM. Ngày nào cần tới mới nạp, mỗi ngày 1 query trên
+// index (serviceDate, start); nạp lại định kỳ để thấy booking do instance khác ghi.
+// Đặt bàn thì kiểm tra trùng giờ lại trên Mongo và chốt bằng BookingGuard (update có điều kiện) nên nhiều instance
+// cũng không giành được cùng khung giờ; write lock chỉ để giữ cây trong RAM nhất quán.
+@Service
+public class BookingService {
+    private static final Logger log = LoggerFactory.getLogger(BookingService.class);
+    // booking dài nhất: booking của ngày trước có thể lấn sang ngày sau tối đa chừng này
+    public static final int MAX_MINUTES = 360;
+
+    private final BookingRepository bookingRepository;
+    private final MongoTemplate mongoTemplate;
+    private final FloorState floorState;
+    // khách vãng lai / order mới dự kiến ngồi bao lâu: bàn có booking bắt đầu trong khoảng này thì không giao
+    private final Duration turn;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IntervalTree> trees = new HashMap<>();
+    private final Map<String, Booking> loaded = new HashMap<>();
+    private final Set<String> loadedDays = new HashSet<>();
+
+    public BookingService(BookingRepository bookingRepository, MongoTemplate mongoTemplate, FloorState floorState,
+                          @Value("${app.bookings.turn-minutes:90}") long turnMinutes) {
+        this.bookingRepository = bookingRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.floorState = floorState;
+        this.turn = Duration.ofMinutes(turnMinutes);
+    }
+
+    public Booking book(String tableId, BookingRequest req, String userId) {
+        CafeTable table = floorState.current().get(tableId);
+        if (table == null) {
+            throw new ResponseStatusException(NOT_FOUND, "Table not found");
+        }
+        if (table.getCapacity() < req.getGuests()) {
+            throw new ResponseStatusException(BAD_REQUEST, "Table " + table.getTableNumber() + " seats at most " + table.getCapacity());
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        Instant start = req.getStart().atZone(zone).toInstant();
+        Instant end = start.plus(Duration.ofMinutes(req.getMinutes()));
+        if (start.isBefore(Instant.now())) {
+            throw new ResponseStatusException(BAD_REQUEST, "start must be in the future");
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureLoaded(daysCovering(start, end, zone));
+            IntervalTree tree = trees.get(tableId);
+            if (tree != null && tree.overlapsAny(start.toEpochMilli(), end.toEpochMilli())) {
+                throw slotTaken(table);
+            }
+            // RAM chỉ có booking đã nạp: kiểm tra lại trên Mongo (booking của instance khác) trước khi ghi
+            long seq = guardSeq(tableId);
+            Booking clash = mongoTemplate.findOne(Query.query(Criteria.where("tableId").is(tableId)
+                    .and("status").is(BookingStatus.CONFIRMED)
+                    .and("start").lt(end)
+                    .and("end").gt(start)), Booking.class);
+            if (clash != null) {
+                if (!loaded.containsKey(clash.getId())) add(clash);
+                throw slotTaken(table);
+            }
+            Booking saved = bookingRepository.insert(Booking.builder()
+                    .tableId(tableId)
+                    .tableNumber(table.getTableNumber())
+                    .serviceDate(req.getStart().toLocalDate().toString())
+                    .start(start)
+                    .end(end)
+                    .guests(req.getGuests())
+                    .note(req.getNote())
+                    .userId(userId)
+                    .build());
+            // có booking khác cho bàn này được ghi sau lúc đọc seq -> lần kiểm tra trên có thể đã không thấy nó
+            if (!advanceGuard(tableId, seq)) {
+                bookingRepository.deleteById(saved.getId());
+                throw new ResponseStatusException(CONFLICT, "Table " + table.getTableNumber() + " is being booked by someone else, please retry");
+            }
+            add(saved);
+            return saved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // user chỉ hủy được booking của mình; admin hủy được mọi booking
+    public Booking cancel(String bookingId, String userId, boolean admin) {
+        Booking b = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Booking not found"));
+        if (!admin && (userId == null || !userId.equals(b.getUserId()))) {
+            throw new ResponseStatusException(FORBIDDEN, "Not your booking");
+        }
+        lock.writeLock().lock();
+        try {
+            Booking cancelled = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(bookingId).and("status").is(BookingStatus.CONFIRMED)),
+                    new Update().set("status", BookingStatus.CANCELLED).set("cancelledAt", Instant.now()),
+                    FindAndModifyOptions.options().returnNew(true), Booking.class);
+            if (cancelled == null) {
+                throw new ResponseStatusException(BAD_REQUEST, "Booking is already cancelled");
+            }
+            removeLoaded(bookingId);
+            return cancelled;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // bàn đủ chỗ cho guests và trống suốt [start, start + minutes), bàn nhỏ nhất trước
+    public List<AvailableTable> availability(LocalDateTime localStart, int minutes, int guests) {
+        if (minutes < 15 || minutes > MAX_MINUTES) {
+            throw new ResponseStatusException(BAD_REQUEST, "minutes must be between 15 and " + MAX_MINUTES);
+        }
+        if (guests < 1) {
+            throw new ResponseStatusException(BAD_REQUEST, "guests must be >= 1");
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        Instant start = localStart.atZone(zone).toInstant();
+        Instant end = start.plus(Duration.ofMinutes(minutes));
+        long s = start.toEpochMilli();
+        long e = end.toEpochMilli();
+        List<CafeTable> candidates = floorState.current().fitting(guests);
+        return read(daysCovering(start, end, zone), () -> {
+            List<AvailableTable> out = new ArrayList<>();
+            for (CafeTable t : candidates) {
+                IntervalTree tree = trees.get(t.getId());
+                if (tree == null || !tree.overlapsAny(s, e)) {
+                    out.add(new AvailableTable(t.getId(), t.getTableNumber(), t.getCapacity()));
+                }
+            }
+            return out;
+        });
+    }
+
+    // tableId -> booking CONFIRMED đầu tiên (không phải của exceptUser) giao [now, now + turn):
+    // xếp khách vãng lai vào những bàn này sẽ lấn sang giờ đã có người đặt
+    public Map<String, Booking> blocking(Instant now, String exceptUser) {
+        long s = now.toEpochMilli();
+        long e = now.plus(turn).toEpochMilli();
+        return read(daysCovering(now, now.plus(turn), ZoneId.systemDefault()), () -> {
+            Map<String, Booking> out = new LinkedHashMap<>();
+            for (Map.Entry<String, IntervalTree> t : trees.entrySet()) {
+                Booking b = firstBlocking(t.getValue(), s, e, exceptUser);
+                if (b != null) out.put(t.getKey(), b);
+            }
+            return out;
+        });
+    }
+
+    // như trên cho 1 bàn (nhận order); null nếu bàn không vướng booking nào
+    public Booking blocking(String tableId, Instant now, String exceptUser) {
+        long s = now.toEpochMilli();
+        long e = now.plus(turn).toEpochMilli();
+        return read(daysCovering(now, now.plus(turn), ZoneId.systemDefault()), () -> {
+            IntervalTree tree = trees.get(tableId);
+            return tree == null ? null : firstBlocking(tree, s, e, exceptUser);
+        });
+    }
+
+    private Booking firstBlocking(IntervalTree tree, long start, long end, String exceptUser) {
+        Booking first = null;
+        for (String id : tree.overlapping(start, end)) {
+            Booking b = loaded.get(id);
+            if (b == null || (exceptUser != null && exceptUser.equals(b.getUserId()))) continue;
+            if (first == null || b.getStart().isBefore(first.getStart())) first = b;
+        }
+        return first;
+    }
+
+    // lịch đặt bàn của 1 ngày (gồm cả booking đã hủy) cho admin
+    public List<Booking> day(LocalDate date) {
+        return bookingRepository.findByServiceDateOrderByStartAsc(date.toString());
+    }
+
+    // bỏ khỏi RAM các ngày đã qua; cần xem lại thì nạp lại từ Mongo
+    @Scheduled(cron = "0 30 4 * * *")
+    public void prune() {
+        LocalDate keepFrom = LocalDate.now(ZoneId.systemDefault()).minusDays(1);
+        lock.writeLock().lock();
+        try {
+            loadedDays.removeIf(d -> LocalDate.parse(d).isBefore(keepFrom));
+            List<String> old = loaded.values().stream()
+                    .filter(b -> LocalDate.parse(b.getServiceDate()).isBefore(keepFrom))
+                    .map(Booking::getId)
+                    .toList();
+            old.forEach(this::removeLoaded);
+            trees.values().removeIf(t -> t.size() == 0);
+            if (!old.isEmpty()) log.info("Pruned {} past booking(s) from memory", old.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // booking do instance khác ghi/hủy chỉ vào RAM ở đây: bỏ các ngày đã nạp để lần đọc sau nạp lại từ Mongo
+    @Scheduled(fixedDelayString = "${app.bookings.reload-ms:60000}", initialDelayString = "${app.bookings.reload-ms:60000}")
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            loadedDays.clear();
+            loaded.clear();
+            trees.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long guardSeq(String tableId) {
+        BookingGuard g = mongoTemplate.findById(tableId, BookingGuard.class);
+        return g == null ? 0 : g.getSeq();
+    }
+
+    // seq -> seq + 1 chỉ khi chưa ai tăng từ lúc đọc; bàn chưa có guard thì upsert, 2 bên cùng upsert thì 1 bên bị duplicate key
+    private boolean advanceGuard(String tableId, long seq) {
+        try {
+            BookingGuard g = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(tableId).and("seq").is(seq)),
+                    new Update().inc("seq", 1),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), BookingGuard.class);
+            return g != null;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private static ResponseStatusException slotTaken(CafeTable table) {
+        return new ResponseStatusException(CONFLICT, "Table " + table.getTableNumber() + " is already booked in that time slot");
+    }
+
+    private <T> T read(List<String> days, Supplier<T> fn) {
+        lock.readLock().lock();
+        try {
+            if (loadedDays.containsAll(days)) return fn.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            ensureLoaded(days);
+            return fn.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // booking giao [start, end) có thể bắt đầu từ ngày của (start - MAX_MINUTES) tới ngày chứa end
+    private static List<String> daysCovering(Instant start, Instant end, ZoneId zone) {
+        LocalDate from = start.minus(Duration.ofMinutes(MAX_MINUTES)).atZone(zone).toLocalDate();
+        LocalDate to = end.minusMillis(1).atZone(zone).toLocalDate();
+        List<String> days = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) days.add(d.toString());
+        return days;
+    }
+
+    // gọi khi đang giữ write lock
+    private void ensureLoaded(List<String> days) {
+        for (String day : days) {
+            if (loadedDays.contains(day)) continue;
+            for (Booking b : bookingRepository.findByServiceDateAndStatusOrderByStartAsc(day, BookingStatus.CONFIRMED)) {
+                if (!loaded.containsKey(b.getId())) add(b);
+            }
+            loadedDays.add(day);
+        }
+    }
+
+    private void add(Booking b) {
+        loaded.put(b.getId(), b);
+        trees.computeIfAbsent(b.getTableId(), k -> new IntervalTree())
+                .insert(b.getId(), b.getStart().toEpochMilli(), b.getEnd().toEpochMilli());
+    }
+
+    private void removeLoaded(String bookingId) {
+        Booking b = loaded.remove(bookingId);
+        if (b == null) return;
+        IntervalTree tree = trees.get(b.getTableId());
+        if (tree != null) tree.remove(b.getId(), b.getStart().toEpochMilli());
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class AvailableTable {
+        private String tableId;
+        private int tableNumber;
+        private int capacity;
+    }
+}
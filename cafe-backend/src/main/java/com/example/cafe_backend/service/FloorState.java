@@ -0,0 +1,211 @@
+package com.example.cafe_backend.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.event.TableChangedEvent;
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.model.TableStatus;
+import com.example.cafe_backend.repository.CafeTableRepository;
+
+import lombok.RequiredArgsConstructor;
+
+// Trạng thái sàn (mọi bàn) trong RAM, giống MenuCatalog: snapshot bất biến, đọc không khóa, ghi thì copy-on-write.
+// Cập nhật từ TableChangedEvent (mọi lần ghi của TableService/OrderService) và đối chiếu lại với Mongo định kỳ.
+@Component
+@RequiredArgsConstructor
+public class FloorState {
+    private static final Logger log = LoggerFactory.getLogger(FloorState.class);
+    private static final Comparator<CafeTable> BY_NUMBER = Comparator.comparingInt(CafeTable::getTableNumber);
+
+    private final CafeTableRepository tableRepository;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    public Snapshot current() {
+        Snapshot s = snapshot;
+        return s != null ? s : reload();
+    }
+
+    public synchronized Snapshot reload() {
+        Map<String, CafeTable> tables = new HashMap<>();
+        for (CafeTable t : tableRepository.findAll()) {
+            tables.put(t.getId(), copy(t));
+        }
+        return swap(tables);
+    }
+
+    // event tới sau bản mới hơn (version nhỏ hơn) thì bỏ qua
+    @EventListener
+    public void onTableChanged(TableChangedEvent e) {
+        apply(e.getTable());
+    }
+
+    public synchronized Snapshot apply(CafeTable t) {
+        if (t == null || t.getId() == null) return current();
+        Snapshot s = current();
+        if (isOlder(t, s.tables.get(t.getId()))) return s;
+        Map<String, CafeTable> tables = new HashMap<>(s.tables);
+        tables.put(t.getId(), copy(t));
+        return swap(tables);
+    }
+
+    public synchronized Snapshot remove(String tableId) {
+        Map<String, CafeTable> tables = new HashMap<>(current().tables);
+        if (tables.remove(tableId) == null) return current();
+        return swap(tables);
+    }
+
+    // lưới an toàn cho thay đổi không đi qua service (sửa tay trong Mongo, event bị mất khi lỗi giữa chừng)
+    @Scheduled(fixedDelayString = "${app.floor.reconcile-ms:60000}", initialDelayString = "${app.floor.reconcile-ms:60000}")
+    public void reconcile() {
+        List<CafeTable> fresh;
+        try {
+            fresh = tableRepository.findAll();
+        } catch (RuntimeException e) {
+            log.warn("Floor state reconcile skipped: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            Snapshot s = current();
+            Map<String, CafeTable> tables = new HashMap<>();
+            int drift = 0;
+            for (CafeTable t : fresh) {
+                CafeTable mine = s.tables.get(t.getId());
+                // event đã áp trong lúc đang đọc Mongo thì giữ bản mới hơn
+                if (mine != null && isOlder(t, mine)) {
+                    tables.put(t.getId(), mine);
+                    continue;
+                }
+                if (mine == null || !same(mine, t)) drift++;
+                tables.put(t.getId(), copy(t));
+            }
+            for (String id : s.tables.keySet()) {
+                if (!tables.containsKey(id)) drift++;
+            }
+            if (drift > 0) {
+                log.info("Floor state reconciled {} table(s) that drifted from Mongo", drift);
+                swap(tables);
+            }
+        }
+    }
+
+    private Snapshot swap(Map<String, CafeTable> tables) {
+        long next = snapshot == null ? 1 : snapshot.version + 1;
+        Snapshot s = new Snapshot(next, tables);
+        snapshot = s;
+        return s;
+    }
+
+    private static boolean isOlder(CafeTable incoming, CafeTable existing) {
+        return existing != null && incoming.getVersion() != null && existing.getVersion() != null
+                && incoming.getVersion() < existing.getVersion();
+    }
+
+    private static boolean same(CafeTable a, CafeTable b) {
+        return Objects.equals(a.getVersion(), b.getVersion()) && a.getStatus() == b.getStatus()
+                && Objects.equals(a.getCurrentOrderId(), b.getCurrentOrderId())
+                && Objects.equals(a.getReservedByUserId(), b.getReservedByUserId())
+                && Objects.equals(a.getSeatedBy(), b.getSeatedBy())
+                && a.getCapacity() == b.getCapacity() && a.getTableNumber() == b.getTableNumber();
+    }
+
+    // snapshot giữ bản sao riêng: caller có thể sửa object đã publish mà không làm hỏng index
+    private static CafeTable copy(CafeTable t) {
+        return t.toBuilder().build();
+    }
+
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, CafeTable> tables;
+        private final List<CafeTable> all;
+        private final Map<TableStatus, List<CafeTable>> byStatus;
+        private final Map<String, List<CafeTable>> byReservedUser;
+        private final NavigableMap<Integer, List<CafeTable>> byCapacity;
+        // chỉ bàn AVAILABLE: xếp chỗ cho khách vãng lai tìm bàn vừa nhất bằng ceiling, O(log n)
+        private final NavigableMap<Integer, List<CafeTable>> freeByCapacity;
+
+        private Snapshot(long version, Map<String, CafeTable> tables) {
+            this.version = version;
+            this.tables = Map.copyOf(tables);
+            List<CafeTable> sorted = new ArrayList<>(tables.values());
+            sorted.sort(BY_NUMBER);
+            Map<TableStatus, List<CafeTable>> status = new EnumMap<>(TableStatus.class);
+            Map<String, List<CafeTable>> reserved = new HashMap<>();
+            NavigableMap<Integer, List<CafeTable>> capacity = new TreeMap<>();
+            NavigableMap<Integer, List<CafeTable>> free = new TreeMap<>();
+            // duyệt theo số bàn nên mọi danh sách con cũng đã sắp theo số bàn
+            for (CafeTable t : sorted) {
+                status.computeIfAbsent(t.getStatus(), k -> new ArrayList<>()).add(t);
+                if (t.getReservedByUserId() != null) {
+                    reserved.computeIfAbsent(t.getReservedByUserId(), k -> new ArrayList<>()).add(t);
+                }
+                capacity.computeIfAbsent(t.getCapacity(), k -> new ArrayList<>()).add(t);
+                if (t.getStatus() == TableStatus.AVAILABLE) {
+                    free.computeIfAbsent(t.getCapacity(), k -> new ArrayList<>()).add(t);
+                }
+            }
+            status.replaceAll((k, v) -> List.copyOf(v));
+            reserved.replaceAll((k, v) -> List.copyOf(v));
+            capacity.replaceAll((k, v) -> List.copyOf(v));
+            free.replaceAll((k, v) -> List.copyOf(v));
+            this.all = List.copyOf(sorted);
+            this.byStatus = status;
+            this.byReservedUser = reserved;
+            this.byCapacity = Collections.unmodifiableNavigableMap(capacity);
+            this.freeByCapacity = Collections.unmodifiableNavigableMap(free);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public List<CafeTable> all() {
+            return all;
+        }
+
+        public CafeTable get(String tableId) {
+            return tableId == null ? null : tables.get(tableId);
+        }
+
+        public List<CafeTable> byStatus(TableStatus status) {
+            return byStatus.getOrDefault(status, List.of());
+        }
+
+        public List<CafeTable> reservedBy(String userId) {
+            return userId == null ? List.of() : byReservedUser.getOrDefault(userId, List.of());
+        }
+
+        // bàn đủ chỗ cho guests, bàn nhỏ nhất trước
+        public List<CafeTable> fitting(int guests) {
+            List<CafeTable> out = new ArrayList<>();
+            for (List<CafeTable> ts : byCapacity.tailMap(guests, true).values()) out.addAll(ts);
+            return out;
+        }
+
+        // bàn trống đủ chỗ, bàn nhỏ nhất trước (cùng sức chứa thì theo số bàn); đọc lười nên chỉ duyệt tới khi giành được bàn
+        public Iterable<CafeTable> freeFitting(int guests) {
+            return () -> freeByCapacity.tailMap(guests, true).values().stream().flatMap(List::stream).iterator();
+        }
+    }
+}
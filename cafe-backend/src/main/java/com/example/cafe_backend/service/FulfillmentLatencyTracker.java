@@ -0,0 +1,237 @@
+package com.example.cafe_backend.service;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.event.OrderChangedEvent;
+import com.example.cafe_backend.model.LatencyHistogramSnapshot;
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.OrderItem;
+import com.example.cafe_backend.repository.LatencyHistogramSnapshotRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+// Per-stage fulfillment latency histograms, bucketed by UTC hour and order size ("mix").
+// Recent hours live in memory and are flushed to latency_histograms every few minutes.
+@Component
+@RequiredArgsConstructor
+public class FulfillmentLatencyTracker {
+    private static final Logger log = LoggerFactory.getLogger(FulfillmentLatencyTracker.class);
+
+    private static final long MAX_TRACKABLE_MS = Duration.ofHours(24).toMillis();
+    // 2 chữ số có nghĩa (~1%) giữ mỗi histogram vài KB
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final int IN_MEMORY_HOURS = 3;
+
+    private final LatencyHistogramSnapshotRepository snapshotRepository;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public enum Stage {
+        CONFIRM,  // createdAt -> confirmedAt
+        PREPARE,  // confirmedAt -> readyAt
+        HANDOFF,  // readyAt -> servedAt
+        TOTAL     // createdAt -> servedAt
+    }
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent e) {
+        Order o = e.getOrder();
+        switch (e.getType()) {
+            case CONFIRMED -> record(Stage.CONFIRM, o, o.getCreatedAt(), o.getConfirmedAt());
+            case READY -> record(Stage.PREPARE, o, o.getConfirmedAt() != null ? o.getConfirmedAt() : o.getCreatedAt(), o.getReadyAt());
+            case SERVED -> {
+                record(Stage.HANDOFF, o, o.getReadyAt(), o.getServedAt());
+                record(Stage.TOTAL, o, o.getCreatedAt(), o.getServedAt());
+            }
+            default -> { }
+        }
+    }
+
+    private void record(Stage stage, Order o, Instant from, Instant to) {
+        if (from == null || to == null || to.isBefore(from)) return;
+        long ms = Math.min(Duration.between(from, to).toMillis(), MAX_TRACKABLE_MS);
+        Instant hour = to.truncatedTo(ChronoUnit.HOURS);
+        Bucket b = buckets.computeIfAbsent(key(hour, stage.name(), mixOf(o)),
+                k -> load(k, hour, stage.name(), mixOf(o)));
+        synchronized (b) {
+            b.histogram.recordValue(ms);
+            b.dirty = true;
+        }
+    }
+
+    // nhóm đơn theo tổng số món: đơn lớn thường làm lâu hơn
+    static String mixOf(Order o) {
+        int qty = 0;
+        if (o.getItems() != null) {
+            for (OrderItem it : o.getItems()) qty += it.getQuantity();
+        }
+        return qty <= 2 ? "1-2" : qty <= 5 ? "3-5" : "6+";
+    }
+
+    // khởi động lại giữa giờ: nạp histogram đã lưu để không ghi đè mất dữ liệu cũ
+    private Bucket load(String id, Instant hour, String stage, String mix) {
+        Histogram h = snapshotRepository.findById(id).map(FulfillmentLatencyTracker::decode).orElseGet(this::newHistogram);
+        return new Bucket(hour, stage, mix, h);
+    }
+
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void flush() {
+        Instant cutoff = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(IN_MEMORY_HOURS - 1, ChronoUnit.HOURS);
+        List<LatencyHistogramSnapshot> out = new ArrayList<>();
+        for (Map.Entry<String, Bucket> e : buckets.entrySet()) {
+            Bucket b = e.getValue();
+            synchronized (b) {
+                if (b.dirty) {
+                    out.add(LatencyHistogramSnapshot.builder()
+                            .id(e.getKey())
+                            .hour(b.hour)
+                            .stage(b.stage)
+                            .mix(b.mix)
+                            .histogram(encode(b.histogram))
+                            .count(b.histogram.getTotalCount())
+                            .updatedAt(Instant.now())
+                            .build());
+                    b.dirty = false;
+                }
+            }
+        }
+        if (!out.isEmpty()) {
+            snapshotRepository.saveAll(out);
+        }
+        // giờ cũ đã lưu xong -> bỏ khỏi RAM
+        buckets.entrySet().removeIf(e -> e.getValue().hour.isBefore(cutoff) && !e.getValue().dirty);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Could not flush latency histograms on shutdown: {}", ex.getMessage());
+        }
+    }
+
+    public enum GroupBy {
+        STAGE,
+        MIX,
+        HOUR
+    }
+
+    public List<LatencyStats> query(Instant startInclusive, Instant endExclusive, GroupBy groupBy) {
+        Map<String, Histogram> sources = new HashMap<>();
+        Map<String, String[]> meta = new HashMap<>(); // id -> {hour, stage, mix}
+        for (LatencyHistogramSnapshot s : snapshotRepository.findByHourGreaterThanEqualAndHourLessThan(startInclusive, endExclusive)) {
+            sources.put(s.getId(), decode(s));
+            meta.put(s.getId(), new String[] { s.getHour().toString(), s.getStage(), s.getMix() });
+        }
+        // bản trong RAM mới hơn bản đã lưu
+        for (Map.Entry<String, Bucket> e : buckets.entrySet()) {
+            Bucket b = e.getValue();
+            if (b.hour.isBefore(startInclusive) || !b.hour.isBefore(endExclusive)) continue;
+            synchronized (b) {
+                sources.put(e.getKey(), b.histogram.copy());
+            }
+            meta.put(e.getKey(), new String[] { b.hour.toString(), b.stage, b.mix });
+        }
+
+        Map<String, Histogram> merged = new HashMap<>();
+        Map<String, String[]> groupMeta = new HashMap<>();
+        for (Map.Entry<String, Histogram> e : sources.entrySet()) {
+            String[] m = meta.get(e.getKey());
+            String hour = groupBy == GroupBy.HOUR ? m[0] : null;
+            String mix = groupBy == GroupBy.MIX ? m[2] : null;
+            String g = m[1] + "|" + hour + "|" + mix;
+            merged.computeIfAbsent(g, k -> newHistogram()).add(e.getValue());
+            groupMeta.put(g, new String[] { hour, m[1], mix });
+        }
+
+        List<LatencyStats> out = new ArrayList<>();
+        for (Map.Entry<String, Histogram> e : merged.entrySet()) {
+            String[] m = groupMeta.get(e.getKey());
+            Histogram h = e.getValue();
+            out.add(new LatencyStats(m[1], m[2], m[0] == null ? null : Instant.parse(m[0]), h.getTotalCount(),
+                    h.getValueAtPercentile(50), h.getValueAtPercentile(90), h.getValueAtPercentile(99),
+                    h.getMaxValue(), Math.round(h.getMean())));
+        }
+        out.sort((a, b) -> {
+            int c = Stage.valueOf(a.getStage()).compareTo(Stage.valueOf(b.getStage()));
+            if (c != 0) return c;
+            if (a.getHour() != null && b.getHour() != null) c = a.getHour().compareTo(b.getHour());
+            if (c != 0) return c;
+            return a.getMix() == null || b.getMix() == null ? 0 : a.getMix().compareTo(b.getMix());
+        });
+        return out;
+    }
+
+    private Histogram newHistogram() {
+        return new Histogram(MAX_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+    }
+
+    private static String key(Instant hour, String stage, String mix) {
+        return hour + "|" + stage + "|" + mix;
+    }
+
+    private static String encode(Histogram h) {
+        ByteBuffer buf = ByteBuffer.allocate(h.getNeededByteBufferCapacity());
+        int len = h.encodeIntoCompressedByteBuffer(buf);
+        return Base64.getEncoder().encodeToString(java.util.Arrays.copyOf(buf.array(), len));
+    }
+
+    private static Histogram decode(LatencyHistogramSnapshot s) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(s.getHistogram())), 0);
+        } catch (DataFormatException | RuntimeException e) {
+            log.warn("Skipping unreadable latency histogram {}: {}", s.getId(), e.getMessage());
+            return new Histogram(MAX_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+        }
+    }
+
+    private static final class Bucket {
+        final Instant hour;
+        final String stage;
+        final String mix;
+        final Histogram histogram;
+        boolean dirty;
+
+        Bucket(Instant hour, String stage, String mix, Histogram histogram) {
+            this.hour = hour;
+            this.stage = stage;
+            this.mix = mix;
+            this.histogram = histogram;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class LatencyStats {
+        private String stage;
+        private String mix;     // null trừ khi groupBy=MIX
+        private Instant hour;   // null trừ khi groupBy=HOUR
+        private long count;
+        private long p50Ms;
+        private long p90Ms;
+        private long p99Ms;
+        private long maxMs;
+        private long meanMs;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.cafe_backend.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Hashed timing wheel: slot = (deadline / tick) % size, mỗi timeout đếm số vòng còn lại.
+// schedule/cancel O(1) theo key (1 timeout / key, schedule lại thì thay cái cũ); 1 thread quay bánh xe mỗi tick.
+// Handler (key, thời điểm hẹn) chạy trên thread đó nên phải ngắn; tick trễ sẽ được chạy bù.
+final class HashedTimingWheel<K> {
+    private static final Logger log = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private final long tickMs;
+    private final int mask;
+    private final List<Set<Timeout<K>>> slots;
+    private final Map<K, Timeout<K>> byKey = new HashMap<>();
+    private final BiConsumer<K, Instant> onExpire;
+    private final Thread worker;
+    private final long startMs;
+    // tick kế tiếp chưa xử lý
+    private long tick;
+    private volatile boolean running = true;
+
+    HashedTimingWheel(String name, long tickMs, int size, BiConsumer<K, Instant> onExpire) {
+        if (Integer.bitCount(size) != 1) throw new IllegalArgumentException("wheel size must be a power of two");
+        this.tickMs = tickMs;
+        this.mask = size - 1;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) slots.add(new LinkedHashSet<>());
+        this.onExpire = onExpire;
+        this.startMs = System.currentTimeMillis();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    synchronized void schedule(K key, Instant deadline) {
+        cancel(key);
+        // làm tròn lên ms (Instant có phần nano) để không bao giờ chạy sớm hơn hẹn; deadline đã qua -> tick kế tiếp
+        long deadlineMs = deadline.toEpochMilli() + (deadline.getNano() % 1_000_000 == 0 ? 0 : 1);
+        long due = Math.max(tick, (deadlineMs - startMs + tickMs - 1) / tickMs);
+        Timeout<K> t = new Timeout<>(key, deadline, (int) (due & mask), (due - tick) / slots.size());
+        slots.get(t.slot).add(t);
+        byKey.put(key, t);
+    }
+
+    synchronized boolean cancel(K key) {
+        Timeout<K> t = byKey.remove(key);
+        if (t == null) return false;
+        slots.get(t.slot).remove(t);
+        return true;
+    }
+
+    synchronized int size() {
+        return byKey.size();
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                long next = startMs + tick * tickMs;
+                long sleep = next - System.currentTimeMillis();
+                if (sleep > 0) Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                if (!running) return;
+                continue;
+            }
+            // chạy bù các tick bị trễ (GC, handler chậm) để không timeout nào bị bỏ qua
+            long now = (System.currentTimeMillis() - startMs) / tickMs;
+            while (running && tick <= now) {
+                for (Timeout<K> t : advance()) {
+                    try {
+                        onExpire.accept(t.key, t.deadline);
+                    } catch (RuntimeException e) {
+                        log.error("Timing wheel handler failed for {}", t.key, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized List<Timeout<K>> advance() {
+        List<Timeout<K>> expired = new ArrayList<>();
+        Set<Timeout<K>> slot = slots.get((int) (tick & mask));
+        var it = slot.iterator();
+        while (it.hasNext()) {
+            Timeout<K> t = it.next();
+            if (t.rounds > 0) {
+                t.rounds--;
+            } else {
+                it.remove();
+                byKey.remove(t.key);
+                expired.add(t);
+            }
+        }
+        tick++;
+        return expired;
+    }
+
+    private static final class Timeout<K> {
+        final K key;
+        final Instant deadline;
+        final int slot;
+        long rounds;
+
+        Timeout(K key, Instant deadline, int slot, long rounds) {
+            this.key = key;
+            this.deadline = deadline;
+            this.slot = slot;
+            this.rounds = rounds;
+        }
+    }
+}
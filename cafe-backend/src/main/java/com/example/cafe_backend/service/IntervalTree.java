@@ -0,0 +1,156 @@
+package com.example.cafe_backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Cây AVL các khoảng [start, end) (epoch ms), mỗi node giữ max(end) của cây con để bỏ qua nhánh không thể giao.
+// Thêm/xóa O(log n), kiểm tra có khoảng giao hay không O(log n). Không thread-safe: caller tự khóa.
+final class IntervalTree {
+    private Node root;
+    private int size;
+
+    void insert(String id, long start, long end) {
+        root = insert(root, new Node(id, start, end));
+        size++;
+    }
+
+    boolean remove(String id, long start) {
+        int before = size;
+        root = remove(root, id, start);
+        return size < before;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean overlapsAny(long start, long end) {
+        Node n = root;
+        while (n != null) {
+            if (n.start < end && start < n.end) return true;
+            // nhánh trái có khoảng kết thúc sau start -> nếu có giao thì chắc chắn nằm được ở đó hoặc không ở đâu cả
+            if (n.left != null && n.left.max > start) {
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return false;
+    }
+
+    // id của mọi khoảng giao [start, end); bỏ qua cây con có max(end) <= start và cây phải khi node bắt đầu từ end trở đi
+    List<String> overlapping(long start, long end) {
+        List<String> out = new ArrayList<>();
+        collect(root, start, end, out);
+        return out;
+    }
+
+    private static void collect(Node n, long start, long end, List<String> out) {
+        if (n == null || n.max <= start) return;
+        collect(n.left, start, end, out);
+        if (n.start < end && start < n.end) out.add(n.id);
+        if (n.start < end) collect(n.right, start, end, out);
+    }
+
+    private static int compare(long startA, String idA, long startB, String idB) {
+        int c = Long.compare(startA, startB);
+        return c != 0 ? c : idA.compareTo(idB);
+    }
+
+    private static Node insert(Node n, Node x) {
+        if (n == null) return x;
+        if (compare(x.start, x.id, n.start, n.id) < 0) {
+            n.left = insert(n.left, x);
+        } else {
+            n.right = insert(n.right, x);
+        }
+        return balance(n);
+    }
+
+    private Node remove(Node n, String id, long start) {
+        if (n == null) return null;
+        int c = compare(start, id, n.start, n.id);
+        if (c < 0) {
+            n.left = remove(n.left, id, start);
+        } else if (c > 0) {
+            n.right = remove(n.right, id, start);
+        } else {
+            size--;
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+            Node m = n.right;
+            while (m.left != null) m = m.left;
+            m.right = removeMin(n.right);
+            m.left = n.left;
+            return balance(m);
+        }
+        return balance(n);
+    }
+
+    private static Node removeMin(Node n) {
+        if (n.left == null) return n.right;
+        n.left = removeMin(n.left);
+        return balance(n);
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void update(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        long max = n.end;
+        if (n.left != null) max = Math.max(max, n.left.max);
+        if (n.right != null) max = Math.max(max, n.right.max);
+        n.max = max;
+    }
+
+    private static Node balance(Node n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private static final class Node {
+        final String id;
+        final long start;
+        final long end;
+        long max;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(String id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.max = end;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.cafe_backend.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.model.Product;
+import com.example.cafe_backend.repository.ProductRepository;
+
+import lombok.RequiredArgsConstructor;
+
+// Immutable in-memory snapshot of the product catalog.
+// Readers grab the current snapshot without locking; writers build a new one and swap it in.
+@Component
+@RequiredArgsConstructor
+public class MenuCatalog {
+    private final ProductRepository productRepository;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    public Snapshot current() {
+        Snapshot s = snapshot;
+        return s != null ? s : reload();
+    }
+
+    // full rebuild from Mongo (startup / after bulk changes)
+    public synchronized Snapshot reload() {
+        Map<String, Item> items = new HashMap<>();
+        for (Product p : productRepository.findAll()) {
+            items.put(p.getId(), Item.of(p));
+        }
+        return swap(items);
+    }
+
+    // copy-on-write update after a single product was saved
+    public synchronized Snapshot put(Product p) {
+        Map<String, Item> items = new HashMap<>(current().items);
+        items.put(p.getId(), Item.of(p));
+        return swap(items);
+    }
+
+    public synchronized Snapshot remove(String productId) {
+        Map<String, Item> items = new HashMap<>(current().items);
+        items.remove(productId);
+        return swap(items);
+    }
+
+    private Snapshot swap(Map<String, Item> items) {
+        long next = snapshot == null ? 1 : snapshot.version + 1;
+        Snapshot s = new Snapshot(next, Map.copyOf(items));
+        snapshot = s;
+        return s;
+    }
+
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, Item> items;
+
+        private Snapshot(long version, Map<String, Item> items) {
+            this.version = version;
+            this.items = items;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public Item get(String productId) {
+            return productId == null ? null : items.get(productId);
+        }
+
+        public Collection<Item> items() {
+            return items.values();
+        }
+    }
+
+    // read-only view of a product as it was when the snapshot was built
+    public record Item(String id, String name, String description, BigDecimal price, boolean available,
+                       String imageUrl, String imageHash, Instant createdAt, Instant updatedAt) {
+        static Item of(Product p) {
+            return new Item(p.getId(), p.getName(), p.getDescription(), p.getPrice(), p.isAvailable(),
+                    p.getImageUrl(), p.getImageHash(), p.getCreatedAt(), p.getUpdatedAt());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.cafe_backend.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.OrderItem;
+import com.example.cafe_backend.model.OrderStatus;
+import com.example.cafe_backend.model.PaymentStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+// Streams orders from a Mongo cursor straight to the response: one document in memory at a time
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+    private static final int CURSOR_BATCH = 500;
+    private static final String CSV_HEADER = "id,createdAt,paidAt,tableId,createdByUserId,status,fulfillmentStatus,"
+            + "paymentStatus,guestCount,totalAmount,items";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    public void write(ExportRequest req, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        ObjectWriter json = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        if (req.getFormat() == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try (Stream<Order> orders = mongoTemplate.stream(buildQuery(req), Order.class)) {
+            var it = orders.iterator();
+            while (it.hasNext()) {
+                Order o = it.next();
+                if (req.getFormat() == Format.CSV) {
+                    writeCsvRow(writer, o);
+                } else {
+                    json.writeValue(writer, o);
+                }
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private Query buildQuery(ExportRequest req) {
+        String field = req.getDateField() == DateField.CREATED_AT ? "createdAt" : "paidAt";
+        Criteria c = new Criteria();
+        if (req.getFrom() != null || req.getTo() != null) {
+            c = Criteria.where(field);
+            if (req.getFrom() != null) c = c.gte(req.getFrom());
+            if (req.getTo() != null) c = c.lt(req.getTo());
+        }
+        if (req.getStatus() != null) c = c.and("status").is(req.getStatus());
+        if (req.getPaymentStatus() != null) c = c.and("paymentStatus").is(req.getPaymentStatus());
+
+        Query q = Query.query(c).with(Sort.by(Sort.Order.asc(field), Sort.Order.asc("_id")));
+        q.cursorBatchSize(CURSOR_BATCH);
+        return q;
+    }
+
+    private static void writeCsvRow(Writer w, Order o) throws IOException {
+        w.write(csv(o.getId()));
+        w.write(',');
+        w.write(csv(o.getCreatedAt()));
+        w.write(',');
+        w.write(csv(o.getPaidAt()));
+        w.write(',');
+        w.write(csv(o.getTableId()));
+        w.write(',');
+        w.write(csv(o.getCreatedByUserId()));
+        w.write(',');
+        w.write(csv(o.getStatus()));
+        w.write(',');
+        w.write(csv(o.getFulfillmentStatus()));
+        w.write(',');
+        w.write(csv(o.getPaymentStatus()));
+        w.write(',');
+        w.write(String.valueOf(o.getGuestCount()));
+        w.write(',');
+        w.write(csv(o.getTotalAmount() == null ? null : o.getTotalAmount().toPlainString()));
+        w.write(',');
+        // items gộp 1 cột: "name x qty @ price; ..."
+        StringBuilder items = new StringBuilder();
+        if (o.getItems() != null) {
+            for (OrderItem it : o.getItems()) {
+                if (items.length() > 0) items.append("; ");
+                items.append(it.getName()).append(" x ").append(it.getQuantity())
+                        .append(" @ ").append(it.getUnitPrice() == null ? "" : it.getUnitPrice().toPlainString());
+            }
+        }
+        w.write(csv(items.toString()));
+    }
+
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String s = value instanceof Instant i ? i.toString() : value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    public enum DateField {
+        PAID_AT,
+        CREATED_AT
+    }
+
+    @Data
+    @Builder
+    public static class ExportRequest {
+        private Format format;
+        private DateField dateField;
+        private Instant from;
+        private Instant to;
+        private OrderStatus status;
+        private PaymentStatus paymentStatus;
+    }
+}
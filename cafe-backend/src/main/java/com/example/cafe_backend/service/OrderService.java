@@ -1,16 +1,35 @@
 package com.example.cafe_backend.service;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.example.cafe_backend.dto.CreateOrderRequest;
 import com.example.cafe_backend.dto.OrderItemRequest;
+import com.example.cafe_backend.dto.OrderPage;
+import com.example.cafe_backend.dto.OrderSearchRequest;
+import com.example.cafe_backend.event.OrderChangedEvent;
+import com.example.cafe_backend.event.TableChangedEvent;
+import com.example.cafe_backend.model.Booking;
 import com.example.cafe_backend.model.CafeTable;
 import com.example.cafe_backend.model.Order;
 import com.example.cafe_backend.model.OrderItem;
@@ -18,10 +37,8 @@ import com.example.cafe_backend.model.OrderStatus;
 import com.example.cafe_backend.model.FulfillmentStatus;
 import com.example.cafe_backend.model.PaymentStatus;
 import com.example.cafe_backend.model.TableStatus;
-import com.example.cafe_backend.model.Product;
 import com.example.cafe_backend.repository.CafeTableRepository;
 import com.example.cafe_backend.repository.OrderRepository;
-import com.example.cafe_backend.repository.ProductRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -32,140 +49,244 @@ import static org.springframework.http.HttpStatus.*;
 public class OrderService {
     private final OrderRepository orderRepository;
     private final CafeTableRepository tableRepository;
-    private final ProductRepository productRepository;
+    private final MenuCatalog menuCatalog;
+    private final TableOccupancyService occupancyService;
+    private final BookingService bookingService;
+    private final ApplicationEventPublisher events;
 
-    public Order createOrder(CreateOrderRequest req, String createdByUserId) {
-        CafeTable table = tableRepository.findById(req.getTableId())
-                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Table not found"));
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
 
-        if (table.getStatus() == TableStatus.OCCUPIED) {
-            throw new ResponseStatusException(BAD_REQUEST, "Table already occupied");
+    public Order createOrder(CreateOrderRequest req, String createdByUserId, String idempotencyKey) {
+        // retry của client với cùng Idempotency-Key -> trả lại order đã tạo (chỉ order của chính user đó)
+        if (idempotencyKey != null) {
+            Optional<Order> existing = orderRepository.findByCreatedByUserIdAndIdempotencyKey(createdByUserId, idempotencyKey);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
         }
 
         if (req.getGuestCount() < 1) {
             throw new ResponseStatusException(BAD_REQUEST, "Guest count must be >= 1");
         }
-        if (req.getGuestCount() > table.getCapacity()) {
-            throw new ResponseStatusException(BAD_REQUEST, "Guest count exceeds table capacity");
-        }
 
-        // map and validate items; unitPrice lấy từ Product
+        // map and validate items; unitPrice lấy từ catalog snapshot (không query Mongo từng item)
+        MenuCatalog.Snapshot catalog = menuCatalog.current();
         List<OrderItem> items = new ArrayList<>();
         BigDecimal total = BigDecimal.ZERO;
 
         for (OrderItemRequest ir : req.getItems()) {
-            Product p = productRepository.findById(ir.getProductId())
-                    .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Product not found: " + ir.getProductId()));
-            if (!p.isAvailable()) {
-                throw new ResponseStatusException(BAD_REQUEST, "Product unavailable: " + p.getName());
+            MenuCatalog.Item p = catalog.get(ir.getProductId());
+            if (p == null) {
+                throw new ResponseStatusException(NOT_FOUND, "Product not found: " + ir.getProductId());
+            }
+            if (!p.available()) {
+                throw new ResponseStatusException(BAD_REQUEST, "Product unavailable: " + p.name());
             }
-            BigDecimal unitPrice = p.getPrice();
+            BigDecimal unitPrice = p.price();
             BigDecimal line = unitPrice.multiply(BigDecimal.valueOf(ir.getQuantity()));
             total = total.add(line);
 
             items.add(OrderItem.builder()
-                    .productId(p.getId())
-                    .name(p.getName())
+                    .productId(p.id())
+                    .name(p.name())
                     .quantity(ir.getQuantity())
                     .unitPrice(unitPrice)
                     .build());
         }
 
+        // bàn sắp tới giờ booking của người khác: chỉ nhận order khi nhân viên đã giữ bàn (RESERVED) cho khách,
+        // không thì order này sẽ chiếm bàn lấn sang giờ đã đặt
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Booking booked = bookingService.blocking(req.getTableId(), Instant.now(), auth != null ? auth.getName() : null);
+
+        // giữ bàn bằng 1 findAndModify có điều kiện; id order sinh trước để gắn currentOrderId cùng lúc
+        String orderId = new ObjectId().toHexString();
+        CafeTable table = tableRepository.claimForOrder(req.getTableId(), orderId, req.getGuestCount(), booked != null);
+        if (table == null) {
+            throw claimFailure(req, booked);
+        }
+
         Order order = Order.builder()
+                .id(orderId)
                 .tableId(table.getId())
                 .createdByUserId(createdByUserId)
+                .idempotencyKey(idempotencyKey)
                 .items(items)
                 .guestCount(req.getGuestCount())
                 .totalAmount(total)
+                .catalogVersion(catalog.version())
                 .status(OrderStatus.PENDING)
         .fulfillmentStatus(FulfillmentStatus.PENDING)
         .paymentStatus(PaymentStatus.UNPAID)
                 .build();
 
-        Order saved = orderRepository.save(order);
-
-        // cập nhật trạng thái bàn
-        table.setStatus(TableStatus.OCCUPIED);
-        table.setCurrentOrderId(saved.getId());
-        table.setUpdatedAt(Instant.now());
-        tableRepository.save(table);
-
+        Order saved;
+        try {
+            saved = orderRepository.insert(order);
+        } catch (DuplicateKeyException e) {
+            // request song song với cùng Idempotency-Key đã thắng; key thuộc user khác (index unique cũ
+            // trên idempotencyKey chưa drop) thì báo 409 chứ không trả order của người khác
+            releaseTable(table.getId(), orderId, false);
+            if (idempotencyKey == null) throw e;
+            return orderRepository.findByCreatedByUserIdAndIdempotencyKey(createdByUserId, idempotencyKey)
+                    .orElseThrow(() -> new ResponseStatusException(CONFLICT, "Idempotency-Key is already in use"));
+        } catch (RuntimeException e) {
+            releaseTable(table.getId(), orderId, false);
+            throw e;
+        }
+        events.publishEvent(new TableChangedEvent(table));
+        events.publishEvent(new OrderChangedEvent(OrderChangedEvent.Type.CREATED, saved));
         return saved;
     }
 
+    // only reached when the conditional claim matched nothing: read once to report the reason
+    private ResponseStatusException claimFailure(CreateOrderRequest req, Booking booked) {
+        CafeTable table = tableRepository.findById(req.getTableId()).orElse(null);
+        if (table == null) {
+            return new ResponseStatusException(NOT_FOUND, "Table not found");
+        }
+        if (table.getStatus() == TableStatus.OCCUPIED) {
+            return new ResponseStatusException(BAD_REQUEST, "Table already occupied");
+        }
+        if (req.getGuestCount() > table.getCapacity()) {
+            return new ResponseStatusException(BAD_REQUEST, "Guest count exceeds table capacity");
+        }
+        if (booked != null && table.getStatus() != TableStatus.RESERVED) {
+            return new ResponseStatusException(CONFLICT, "Table is booked from " + booked.getStart() + "; ask staff to seat you");
+        }
+        return new ResponseStatusException(CONFLICT, "Table was modified concurrently, please retry");
+    }
+
     public Order getById(String id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Order not found"));
     }
 
     public Order markServed(String id) {
-        Order o = getById(id);
-        // allow serving when confirmed/preparing/ready
-        o.setStatus(OrderStatus.SERVED);
-        o.setFulfillmentStatus(FulfillmentStatus.SERVED);
-        o.setServedAt(Instant.now());
-        o.setUpdatedAt(Instant.now());
-        return orderRepository.save(o);
+        Instant now = Instant.now();
+        // status cũ (legacy) không được ghi đè PAID nếu đã thanh toán trước khi phục vụ
+        AggregationUpdate u = AggregationUpdate.update()
+                .set("status").toValue(ConditionalOperators.when(Criteria.where("status").is(OrderStatus.PAID.name()))
+                        .then(OrderStatus.PAID.name())
+                        .otherwise(OrderStatus.SERVED.name()))
+                .set("fulfillmentStatus").toValue(FulfillmentStatus.SERVED.name())
+                .set("servedAt").toValue(now)
+                .set("updatedAt").toValue(now);
+        return advance(id, FulfillmentStatus.SERVED, u);
     }
 
     public Order markPaid(String id) {
-        Order o = getById(id);
-        o.setStatus(OrderStatus.PAID);
-        o.setPaymentStatus(PaymentStatus.PAID);
-        o.setPaidAt(Instant.now());
-        o.setUpdatedAt(Instant.now());
-        Order saved = orderRepository.save(o);
+        Instant now = Instant.now();
+        Criteria guard = new Criteria().andOperator(
+                inOrMissing("paymentStatus", EnumSet.of(PaymentStatus.UNPAID), PaymentStatus.UNPAID),
+                Criteria.where("fulfillmentStatus").ne(FulfillmentStatus.CANCELLED));
+        Update u = new Update()
+                .set("status", OrderStatus.PAID)
+                .set("paymentStatus", PaymentStatus.PAID)
+                .set("paidAt", now)
+                .set("updatedAt", now);
+        Order saved = orderRepository.transition(id, guard, u);
+        if (saved == null) {
+            throw transitionFailure(id, PaymentStatus.PAID.name());
+        }
+        events.publishEvent(new OrderChangedEvent(OrderChangedEvent.Type.PAID, saved));
 
         // giải phóng bàn nếu đang trỏ đến order này
-        CafeTable t = tableRepository.findById(o.getTableId())
-                .orElse(null);
-        if (t != null && o.getId().equals(t.getCurrentOrderId())) {
-            t.setStatus(TableStatus.AVAILABLE);
-            t.setCurrentOrderId(null);
-            t.setUpdatedAt(Instant.now());
-            tableRepository.save(t);
-        }
+        releaseTable(saved.getTableId(), saved.getId(), true);
         return saved;
     }
 
     public Order markConfirmed(String id) {
-        Order o = getById(id);
-        o.setFulfillmentStatus(FulfillmentStatus.CONFIRMED);
-        o.setUpdatedAt(Instant.now());
-        o.setConfirmedAt(Instant.now());
-        return orderRepository.save(o);
+        Instant now = Instant.now();
+        Update u = new Update()
+                .set("fulfillmentStatus", FulfillmentStatus.CONFIRMED)
+                .set("confirmedAt", now)
+                .set("updatedAt", now);
+        return advance(id, FulfillmentStatus.CONFIRMED, u);
     }
 
     public Order markPreparing(String id) {
-        Order o = getById(id);
-        o.setFulfillmentStatus(FulfillmentStatus.PREPARING);
-        o.setUpdatedAt(Instant.now());
-        o.setPreparingAt(Instant.now());
-        return orderRepository.save(o);
+        Instant now = Instant.now();
+        Update u = new Update()
+                .set("fulfillmentStatus", FulfillmentStatus.PREPARING)
+                .set("preparingAt", now)
+                .set("updatedAt", now);
+        return advance(id, FulfillmentStatus.PREPARING, u);
     }
 
     public Order markReady(String id) {
-        Order o = getById(id);
-        o.setFulfillmentStatus(FulfillmentStatus.READY);
-        o.setUpdatedAt(Instant.now());
-        o.setReadyAt(Instant.now());
-        return orderRepository.save(o);
+        Instant now = Instant.now();
+        Update u = new Update()
+                .set("fulfillmentStatus", FulfillmentStatus.READY)
+                .set("readyAt", now)
+                .set("updatedAt", now);
+        return advance(id, FulfillmentStatus.READY, u);
     }
 
     public Order cancel(String id) {
-        Order o = getById(id);
-        o.setFulfillmentStatus(FulfillmentStatus.CANCELLED);
-        o.setStatus(OrderStatus.CANCELLED);
-        o.setUpdatedAt(Instant.now());
+        Criteria guard = new Criteria().andOperator(
+                inOrMissing("fulfillmentStatus", FulfillmentStatus.CANCELLED.allowedFrom(), FulfillmentStatus.PENDING),
+                Criteria.where("paymentStatus").ne(PaymentStatus.PAID));
+        Update u = new Update()
+                .set("fulfillmentStatus", FulfillmentStatus.CANCELLED)
+                .set("status", OrderStatus.CANCELLED)
+                .set("updatedAt", Instant.now());
+        Order saved = orderRepository.transition(id, guard, u);
+        if (saved == null) {
+            throw transitionFailure(id, FulfillmentStatus.CANCELLED.name());
+        }
+        events.publishEvent(new OrderChangedEvent(OrderChangedEvent.Type.CANCELLED, saved));
         // free table if needed
-        CafeTable t = tableRepository.findById(o.getTableId()).orElse(null);
-        if (t != null && o.getId().equals(t.getCurrentOrderId())) {
-            t.setStatus(TableStatus.AVAILABLE);
-            t.setCurrentOrderId(null);
-            t.setUpdatedAt(Instant.now());
-            tableRepository.save(t);
+        releaseTable(saved.getTableId(), saved.getId(), true);
+        return saved;
+    }
+
+    // fulfillment step guarded by the state machine; one conditional findAndModify
+    private Order advance(String id, FulfillmentStatus target, UpdateDefinition update) {
+        Criteria guard = inOrMissing("fulfillmentStatus", target.allowedFrom(), FulfillmentStatus.PENDING);
+        Order saved = orderRepository.transition(id, guard, update);
+        if (saved == null) {
+            throw transitionFailure(id, target.name());
+        }
+        events.publishEvent(new OrderChangedEvent(OrderChangedEvent.Type.valueOf(target.name()), saved));
+        return saved;
+    }
+
+    // recordOccupancy=false khi chỉ hoàn tác claim của 1 order không tạo được (không phải lượt ngồi thật)
+    private void releaseTable(String tableId, String orderId, boolean recordOccupancy) {
+        Instant now = Instant.now();
+        CafeTable t = tableRepository.releaseOrder(tableId, orderId, now);
+        if (t == null) {
+            return;
+        }
+        if (recordOccupancy) {
+            occupancyService.recordClosed(t, now);
+        }
+        // releaseOrder trả bản trước khi release -> áp cùng thay đổi để phát trạng thái mới
+        t.setStatus(TableStatus.AVAILABLE);
+        t.setCurrentOrderId(null);
+        t.setOccupiedAt(null);
+        t.setGuestCount(null);
+        t.setUpdatedAt(now);
+        t.setVersion(t.getVersion() == null ? 1L : t.getVersion() + 1);
+        events.publishEvent(new TableChangedEvent(t));
+    }
+
+    // legacy documents may not have the field yet: treat missing as the enum default
+    private static <E extends Enum<E>> Criteria inOrMissing(String field, Set<E> allowed, E defaultValue) {
+        List<Object> values = new ArrayList<>(allowed);
+        if (allowed.contains(defaultValue)) {
+            values.add(null);
         }
-        return orderRepository.save(o);
+        return Criteria.where(field).in(values);
+    }
+
+    // guard matched nothing: 404 if the order is gone, otherwise 409 with the state it is actually in
+    private ResponseStatusException transitionFailure(String id, String target) {
+        Order current = getById(id);
+        return new ResponseStatusException(CONFLICT, "Illegal transition to " + target + " from "
+                + current.getFulfillmentStatus() + "/" + current.getPaymentStatus());
     }
 
     public Order findCurrentByTable(String tableId) {
@@ -190,4 +311,40 @@ public class OrderService {
         }
         return orderRepository.findAllByOrderByCreatedAtDesc();
     }
-}
\ No newline at end of file
+
+    // Admin search: filters + keyset cursor, fetches one extra row to know whether there is a next page
+    public OrderPage search(OrderSearchRequest req, String cursor) {
+        int limit = req.getLimit() <= 0 ? DEFAULT_PAGE_SIZE : Math.min(req.getLimit(), MAX_PAGE_SIZE);
+        if (cursor != null && !cursor.isBlank()) {
+            decodeCursor(cursor, req);
+        }
+        req.setLimit(limit + 1);
+        List<Order> rows = orderRepository.search(req);
+        if (rows.size() <= limit) {
+            return new OrderPage(rows, null);
+        }
+        List<Order> page = new ArrayList<>(rows.subList(0, limit));
+        Order last = page.get(page.size() - 1);
+        return new OrderPage(page, encodeCursor(last));
+    }
+
+    private static String encodeCursor(Order last) {
+        String raw = last.getCreatedAt().toEpochMilli() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void decodeCursor(String cursor, OrderSearchRequest req) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            req.setAfterCreatedAt(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, sep))));
+            String id = raw.substring(sep + 1);
+            if (!ObjectId.isValid(id)) {
+                throw new IllegalArgumentException(id);
+            }
+            req.setAfterId(id);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
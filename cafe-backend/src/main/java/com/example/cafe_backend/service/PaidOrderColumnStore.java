@@ -0,0 +1,369 @@
+package com.example.cafe_backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.event.OrderChangedEvent;
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.OrderItem;
+import com.example.cafe_backend.model.PaymentStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+// Bảng "fact" các order đã thanh toán dạng cột (mảng primitive) để cắt lát báo cáo tùy ý không cần query Mongo.
+// ~32 byte/order + ~16 byte/món; id bảng/user/sản phẩm được mã hóa qua dictionary thành int.
+// Bật bằng app.analytics.columnar.enabled=true
+@Component
+@ConditionalOnProperty(name = "app.analytics.columnar.enabled", havingValue = "true")
+public class PaidOrderColumnStore {
+    private static final Logger log = LoggerFactory.getLogger(PaidOrderColumnStore.class);
+    private static final int INITIAL_CAPACITY = 1 << 14;
+    // dưới ngưỡng này 1 thread quét nhanh hơn chi phí chia việc
+    private static final int SPLIT_THRESHOLD = 1 << 16;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Dictionary tables = new Dictionary();
+    private final Dictionary users = new Dictionary();
+    private final Dictionary products = new Dictionary();
+    private final Map<Integer, String> productNames = new HashMap<>();
+
+    // ghi dưới lock, đọc qua snapshot volatile: phần tử [0, size) đã ghi xong trước khi snapshot được publish
+    private final Object writeLock = new Object();
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    // order có paidAt trước mốc này được nạp từ Mongo, sau mốc thì đến từ event PAID
+    private final Instant loadCutoff = Instant.now();
+
+    public PaidOrderColumnStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Query q = Query.query(Criteria.where("paymentStatus").is(PaymentStatus.PAID).and("paidAt").lt(loadCutoff));
+        q.fields().include("paidAt", "tableId", "guestCount", "totalAmount", "createdByUserId", "items");
+        q.cursorBatchSize(1000);
+        long started = System.currentTimeMillis();
+        try (Stream<Order> orders = mongoTemplate.stream(q, Order.class)) {
+            orders.forEach(this::append);
+        }
+        Columns c = columns;
+        log.info("Columnar store loaded {} paid orders ({} items) in {} ms", c.size, c.itemSize,
+                System.currentTimeMillis() - started);
+    }
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent e) {
+        if (e.getType() != OrderChangedEvent.Type.PAID) return;
+        Order o = e.getOrder();
+        // đã/sẽ được nạp từ Mongo -> bỏ qua để không đếm 2 lần
+        if (o.getPaidAt() != null && o.getPaidAt().isBefore(loadCutoff)) return;
+        append(o);
+    }
+
+    void append(Order o) {
+        if (o.getPaidAt() == null) return;
+        synchronized (writeLock) {
+            Columns c = columns;
+            int itemCount = o.getItems() == null ? 0 : o.getItems().size();
+            Columns next = c.ensureCapacity(c.size + 1, c.itemSize + itemCount);
+            int row = c.size;
+            next.paidAt[row] = o.getPaidAt().toEpochMilli();
+            next.table[row] = tables.encode(o.getTableId());
+            next.user[row] = users.encode(o.getCreatedByUserId());
+            next.guests[row] = o.getGuestCount();
+            next.totalMinor[row] = minor(o.getTotalAmount());
+            int item = c.itemSize;
+            if (itemCount > 0) {
+                for (OrderItem it : o.getItems()) {
+                    int p = products.encode(it.getProductId());
+                    if (it.getName() != null) productNames.put(p, it.getName());
+                    next.itemProduct[item] = p;
+                    next.itemQty[item] = it.getQuantity();
+                    next.itemRevenueMinor[item] = it.getUnitPrice() == null ? 0
+                            : minor(it.getUnitPrice()) * it.getQuantity();
+                    item++;
+                }
+            }
+            next.itemEnd[row] = item;
+            next.size = row + 1;
+            next.itemSize = item;
+            columns = next;
+        }
+    }
+
+    public enum Dimension {
+        TABLE,
+        HOUR_OF_WEEK,
+        GUESTS,
+        USER,
+        PRODUCT
+    }
+
+    public List<SliceRow> slice(SliceQuery query) {
+        Columns c = columns;
+        Filter f = new Filter(query.getFrom().toEpochMilli(), query.getTo().toEpochMilli(),
+                query.getTableId() == null ? -2 : tables.lookup(query.getTableId()),
+                query.getUserId() == null ? -2 : users.lookup(query.getUserId()),
+                query.getDimension(), query.getZone().getRules());
+        Map<Integer, long[]> groups = ForkJoinPool.commonPool().invoke(new ScanTask(c, f, 0, c.size));
+
+        List<SliceRow> out = new ArrayList<>(groups.size());
+        for (Map.Entry<Integer, long[]> e : groups.entrySet()) {
+            long[] a = e.getValue();
+            out.add(new SliceRow(label(query.getDimension(), e.getKey()), a[0], a[1], a[3],
+                    BigDecimal.valueOf(a[2], 2)));
+        }
+        out.sort(Comparator.comparing(SliceRow::getRevenue).reversed());
+        return out;
+    }
+
+    public Stats stats() {
+        Columns c = columns;
+        return new Stats(c.size, c.itemSize, c.paidAt.length, c.itemProduct.length, c.bytes());
+    }
+
+    private String label(Dimension d, int key) {
+        return switch (d) {
+            case TABLE -> tables.decode(key);
+            case USER -> users.decode(key);
+            case PRODUCT -> {
+                String name;
+                synchronized (writeLock) {
+                    name = productNames.get(key);
+                }
+                yield products.decode(key) + (name == null ? "" : " (" + name + ")");
+            }
+            // thứ trong tuần 1=Thứ 2 .. 7=CN, giờ 0-23
+            case HOUR_OF_WEEK -> (key / 24 + 1) + "-" + String.format("%02d", key % 24);
+            case GUESTS -> String.valueOf(key);
+        };
+    }
+
+    private static long minor(BigDecimal v) {
+        return v == null ? 0 : v.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private record Filter(long from, long to, int table, int user, Dimension dimension, ZoneRules zone) {}
+
+    // mỗi nhánh trả về map key -> {orders, guests, revenueMinor, quantity}; ghép lại khi join
+    private static final class ScanTask extends RecursiveTask<Map<Integer, long[]>> {
+        private final Columns c;
+        private final Filter f;
+        private final int lo;
+        private final int hi;
+
+        ScanTask(Columns c, Filter f, int lo, int hi) {
+            this.c = c;
+            this.f = f;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Map<Integer, long[]> compute() {
+            if (hi - lo > SPLIT_THRESHOLD) {
+                int mid = (lo + hi) >>> 1;
+                ScanTask left = new ScanTask(c, f, lo, mid);
+                left.fork();
+                Map<Integer, long[]> right = new ScanTask(c, f, mid, hi).compute();
+                Map<Integer, long[]> merged = left.join();
+                right.forEach((k, v) -> {
+                    long[] a = merged.computeIfAbsent(k, x -> new long[4]);
+                    for (int i = 0; i < 4; i++) a[i] += v[i];
+                });
+                return merged;
+            }
+            Map<Integer, long[]> out = new HashMap<>();
+            for (int row = lo; row < hi; row++) {
+                long t = c.paidAt[row];
+                if (t < f.from || t >= f.to) continue;
+                if (f.table != -2 && c.table[row] != f.table) continue;
+                if (f.user != -2 && c.user[row] != f.user) continue;
+                int itemLo = row == 0 ? 0 : c.itemEnd[row - 1];
+                int itemHi = c.itemEnd[row];
+                if (f.dimension == Dimension.PRODUCT) {
+                    for (int i = itemLo; i < itemHi; i++) {
+                        long[] a = out.computeIfAbsent(c.itemProduct[i], x -> new long[4]);
+                        a[0]++;
+                        a[1] += c.guests[row];
+                        a[2] += c.itemRevenueMinor[i];
+                        a[3] += c.itemQty[i];
+                    }
+                    continue;
+                }
+                int key = switch (f.dimension) {
+                    case TABLE -> c.table[row];
+                    case USER -> c.user[row];
+                    case GUESTS -> c.guests[row];
+                    case HOUR_OF_WEEK -> hourOfWeek(t, f.zone);
+                    default -> 0;
+                };
+                long[] a = out.computeIfAbsent(key, x -> new long[4]);
+                a[0]++;
+                a[1] += c.guests[row];
+                a[2] += c.totalMinor[row];
+                for (int i = itemLo; i < itemHi; i++) a[3] += c.itemQty[i];
+            }
+            return out;
+        }
+
+        private static int hourOfWeek(long epochMilli, ZoneRules zone) {
+            long local = epochMilli / 1000 + zone.getOffset(Instant.ofEpochMilli(epochMilli)).getTotalSeconds();
+            long days = Math.floorDiv(local, 86_400);
+            int dow = Math.floorMod(days + 3, 7); // 1970-01-01 là Thứ 5 -> 0 = Thứ 2
+            int hour = Math.floorMod(local, 86_400) / 3600;
+            return dow * 24 + hour;
+        }
+    }
+
+    // các cột song song; itemEnd[row] = vị trí kết thúc (exclusive) các món của row trong mảng item*
+    private static final class Columns {
+        long[] paidAt;
+        int[] table;
+        int[] user;
+        int[] guests;
+        long[] totalMinor;
+        int[] itemEnd;
+        int[] itemProduct;
+        int[] itemQty;
+        long[] itemRevenueMinor;
+        int size;
+        int itemSize;
+
+        Columns(int capacity) {
+            paidAt = new long[capacity];
+            table = new int[capacity];
+            user = new int[capacity];
+            guests = new int[capacity];
+            totalMinor = new long[capacity];
+            itemEnd = new int[capacity];
+            itemProduct = new int[capacity * 2];
+            itemQty = new int[capacity * 2];
+            itemRevenueMinor = new long[capacity * 2];
+        }
+
+        private Columns() {
+        }
+
+        // luôn trả bản mới để reader đang giữ snapshot cũ không thấy size thay đổi
+        Columns ensureCapacity(int rows, int items) {
+            Columns n = new Columns();
+            n.size = size;
+            n.itemSize = itemSize;
+            if (rows > paidAt.length) {
+                int cap = Math.max(rows, paidAt.length + (paidAt.length >> 1));
+                n.paidAt = Arrays.copyOf(paidAt, cap);
+                n.table = Arrays.copyOf(table, cap);
+                n.user = Arrays.copyOf(user, cap);
+                n.guests = Arrays.copyOf(guests, cap);
+                n.totalMinor = Arrays.copyOf(totalMinor, cap);
+                n.itemEnd = Arrays.copyOf(itemEnd, cap);
+            } else {
+                n.paidAt = paidAt;
+                n.table = table;
+                n.user = user;
+                n.guests = guests;
+                n.totalMinor = totalMinor;
+                n.itemEnd = itemEnd;
+            }
+            if (items > itemProduct.length) {
+                int cap = Math.max(items, itemProduct.length + (itemProduct.length >> 1));
+                n.itemProduct = Arrays.copyOf(itemProduct, cap);
+                n.itemQty = Arrays.copyOf(itemQty, cap);
+                n.itemRevenueMinor = Arrays.copyOf(itemRevenueMinor, cap);
+            } else {
+                n.itemProduct = itemProduct;
+                n.itemQty = itemQty;
+                n.itemRevenueMinor = itemRevenueMinor;
+            }
+            return n;
+        }
+
+        long bytes() {
+            return paidAt.length * 32L + itemProduct.length * 16L;
+        }
+    }
+
+    // string <-> int; -1 = null
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] values = new String[64];
+        private int size;
+
+        synchronized int encode(String value) {
+            if (value == null) return -1;
+            Integer id = ids.get(value);
+            if (id != null) return id;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size] = value;
+            ids.put(value, size);
+            return size++;
+        }
+
+        // giá trị chưa gặp -> id không tồn tại, lọc ra rỗng
+        synchronized int lookup(String value) {
+            Integer id = ids.get(value);
+            return id == null ? Integer.MIN_VALUE : id;
+        }
+
+        synchronized String decode(int id) {
+            return id < 0 || id >= size ? null : values[id];
+        }
+    }
+
+    @Data
+    @Builder
+    public static class SliceQuery {
+        private Instant from;
+        private Instant to;
+        private ZoneId zone;
+        private Dimension dimension;
+        private String tableId;
+        private String userId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SliceRow {
+        private String key;
+        private long orders;      // PRODUCT: số order có món này
+        private long guests;
+        private long quantity;
+        private BigDecimal revenue;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int orders;
+        private int items;
+        private int orderCapacity;
+        private int itemCapacity;
+        private long approxBytes;
+    }
+}
@@ -0,0 +1,409 @@
+package com.example.cafe_backend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.dto.BulkProductResult;
+import com.example.cafe_backend.dto.BulkProductResult.Status;
+import com.example.cafe_backend.dto.BulkProductRow;
+import com.example.cafe_backend.model.Product;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+
+import lombok.RequiredArgsConstructor;
+
+import static org.springframework.http.HttpStatus.*;
+
+// Import/cập nhật giá hàng loạt: đọc stream CSV hoặc mảng JSON, kiểm tra toàn bộ 1 lượt (trùng tên bằng Set trong RAM),
+// ghi bằng bulkWrite theo từng chunk rồi mới reload MenuCatalog + search index 1 lần.
+@Service
+@RequiredArgsConstructor
+public class ProductBulkService {
+    private static final Logger log = LoggerFactory.getLogger(ProductBulkService.class);
+    public static final int MAX_ROWS = 10_000;
+    private static final int CHUNK_SIZE = 500;
+    private static final List<String> CSV_COLUMNS = List.of("id", "name", "description", "imageUrl", "price", "available");
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final MenuCatalog menuCatalog;
+    private final ProductSearchIndex searchIndex;
+    private final ProductImageService imageService;
+
+    public BulkProductResult importStream(InputStream in, String contentType, boolean ordered) {
+        List<BulkProductRow> rows = new ArrayList<>();
+        Map<Integer, String> parseErrors = new HashMap<>();
+        try {
+            if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv")) {
+                readCsv(in, rows, parseErrors);
+            } else {
+                readJson(in, rows);
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Cannot read import: " + e.getMessage());
+        }
+        return apply(rows, parseErrors, ordered);
+    }
+
+    private BulkProductResult apply(List<BulkProductRow> rows, Map<Integer, String> parseErrors, boolean ordered) {
+        int n = rows.size();
+        Status[] status = new Status[n];
+        String[] ids = new String[n];
+        String[] errors = new String[n];
+
+        // trạng thái hiện tại: 1 query chỉ lấy các field cần để kiểm tra
+        Query existingQuery = new Query();
+        existingQuery.fields().include("name", "normalizedName", "imageUrl");
+        Map<String, Product> byId = new HashMap<>();
+        Map<String, String> idByName = new HashMap<>();
+        for (Product p : mongoTemplate.find(existingQuery, Product.class)) {
+            byId.put(p.getId(), p);
+            String key = p.getNormalizedName() != null ? p.getNormalizedName() : TextNormalizer.normalizedName(p.getName());
+            idByName.put(key, p.getId());
+        }
+
+        // kiểm tra 1 lượt; tên trong batch giữ trong Set/Map nên không phải hỏi Mongo từng dòng
+        Map<String, Integer> claimedNames = new HashMap<>();
+        Set<String> claimedIds = new HashSet<>();
+        String[] normalized = new String[n];
+        for (int i = 0; i < n; i++) {
+            BulkProductRow r = rows.get(i);
+            String error = parseErrors.get(i);
+            if (error == null) error = validate(r);
+            if (error == null && r.getName() != null) {
+                normalized[i] = TextNormalizer.normalizedName(r.getName());
+            }
+            if (error == null && hasText(r.getId())) {
+                if (!byId.containsKey(r.getId())) {
+                    error = "Product not found";
+                } else if (!claimedIds.add(r.getId())) {
+                    error = "Product " + r.getId() + " appears more than once";
+                } else if (normalized[i] != null) {
+                    String owner = idByName.get(normalized[i]);
+                    if (owner != null && !owner.equals(r.getId())) error = "Product name exists";
+                }
+                ids[i] = r.getId();
+            } else if (error == null) {
+                // không có id: tên trùng sản phẩm có sẵn -> cập nhật sản phẩm đó
+                String owner = idByName.get(normalized[i]);
+                if (owner != null && !claimedIds.add(owner)) {
+                    error = "Product " + owner + " appears more than once";
+                } else if (owner == null && r.getPrice() == null) {
+                    error = "price is required for new products";
+                }
+                ids[i] = owner;
+            }
+            if (error == null && normalized[i] != null) {
+                Integer other = claimedNames.putIfAbsent(normalized[i], i);
+                if (other != null) error = "Duplicate name in import (row " + (other + 1) + ")";
+            }
+            if (error != null) {
+                status[i] = Status.INVALID;
+                errors[i] = error;
+            }
+        }
+
+        boolean hasInvalid = false;
+        for (Status s : status) hasInvalid |= s == Status.INVALID;
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (status[i] != null) continue;
+            // ordered = tất cả hoặc không: 1 dòng sai thì không ghi gì
+            if (ordered && hasInvalid) {
+                status[i] = Status.SKIPPED;
+            } else {
+                pending.add(i);
+            }
+        }
+
+        Instant now = Instant.now();
+        List<Product> imageRefresh = new ArrayList<>();
+        boolean stop = false;
+        for (int from = 0; from < pending.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = pending.subList(from, Math.min(pending.size(), from + CHUNK_SIZE));
+            if (stop) {
+                for (int i : chunk) status[i] = Status.SKIPPED;
+                continue;
+            }
+            BulkOperations ops = mongoTemplate.bulkOps(
+                    ordered ? BulkOperations.BulkMode.ORDERED : BulkOperations.BulkMode.UNORDERED, Product.class);
+            for (int i : chunk) {
+                BulkProductRow r = rows.get(i);
+                Update u = toUpdate(r, normalized[i], ids[i] == null ? null : byId.get(ids[i]), now);
+                if (ids[i] != null) {
+                    ops.updateOne(Query.query(Criteria.where("_id").is(ids[i])), u);
+                } else {
+                    u.setOnInsert("createdAt", now);
+                    if (r.getAvailable() == null) u.setOnInsert("available", true);
+                    ops.upsert(Query.query(Criteria.where("normalizedName").is(normalized[i])), u);
+                }
+            }
+
+            BulkWriteResult result;
+            Map<Integer, String> failed = new HashMap<>();
+            try {
+                result = ops.execute();
+            } catch (BulkOperationException e) {
+                result = e.getResult();
+                for (BulkWriteError err : e.getErrors()) {
+                    failed.put(err.getIndex(), err.getCode() == 11000 ? "Product name exists" : err.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.error("Bulk product import chunk failed", e);
+                for (int i : chunk) {
+                    status[i] = Status.FAILED;
+                    errors[i] = e.getMessage();
+                }
+                stop = ordered;
+                continue;
+            }
+
+            Map<Integer, String> upserted = new HashMap<>();
+            if (result != null) {
+                for (BulkWriteUpsert up : result.getUpserts()) upserted.put(up.getIndex(), idOf(up.getId()));
+            }
+            // ordered: Mongo dừng ở lỗi đầu tiên, các thao tác sau nó chưa chạy
+            int firstError = failed.isEmpty() ? Integer.MAX_VALUE : failed.keySet().stream().min(Integer::compare).get();
+            for (int k = 0; k < chunk.size(); k++) {
+                int i = chunk.get(k);
+                if (failed.containsKey(k)) {
+                    status[i] = Status.FAILED;
+                    errors[i] = failed.get(k);
+                } else if (ordered && k > firstError) {
+                    status[i] = Status.SKIPPED;
+                } else if (upserted.containsKey(k)) {
+                    status[i] = Status.CREATED;
+                    ids[i] = upserted.get(k);
+                } else {
+                    status[i] = Status.UPDATED;
+                }
+                if ((status[i] == Status.CREATED || status[i] == Status.UPDATED) && ids[i] != null
+                        && imageChanged(rows.get(i), byId.get(ids[i])) && ProductImageService.localHash(rows.get(i).getImageUrl()) == null) {
+                    imageRefresh.add(Product.builder().id(ids[i]).imageUrl(rows.get(i).getImageUrl()).build());
+                }
+            }
+            stop = ordered && !failed.isEmpty();
+        }
+
+        int created = 0, updated = 0, invalid = 0, failedCount = 0, skipped = 0;
+        List<BulkProductResult.Row> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            switch (status[i]) {
+                case CREATED -> created++;
+                case UPDATED -> updated++;
+                case INVALID -> invalid++;
+                case FAILED -> failedCount++;
+                case SKIPPED -> skipped++;
+            }
+            out.add(new BulkProductResult.Row(i + 1, status[i], ids[i], errors[i]));
+        }
+
+        // 1 lần invalidation cho cả batch thay vì put từng sản phẩm
+        if (created + updated > 0) {
+            menuCatalog.reload();
+            searchIndex.rebuild();
+            imageRefresh.forEach(imageService::refreshAsync);
+        }
+        log.info("Bulk product import: {} rows, {} created, {} updated, {} invalid, {} failed, {} skipped",
+                n, created, updated, invalid, failedCount, skipped);
+        return new BulkProductResult(ordered, created, updated, invalid, failedCount, skipped, out);
+    }
+
+    private static String validate(BulkProductRow r) {
+        boolean hasId = hasText(r.getId());
+        if (!hasId && !hasText(r.getName())) return "name is required";
+        if (hasId && r.getName() != null && !hasText(r.getName())) return "name must not be blank";
+        if (r.getPrice() != null && r.getPrice().signum() < 0) return "price must be >= 0";
+        return null;
+    }
+
+    // chỉ set field có trong dòng import; ảnh đổi -> hash cũ bỏ, thumbnail mới tạo ở nền
+    private static Update toUpdate(BulkProductRow r, String normalized, Product existing, Instant now) {
+        Update u = new Update().set("updatedAt", now);
+        if (r.getName() != null) {
+            u.set("name", r.getName()).set("normalizedName", normalized);
+        }
+        if (r.getDescription() != null) u.set("description", r.getDescription());
+        if (r.getPrice() != null) u.set("price", r.getPrice());
+        if (r.getAvailable() != null) u.set("available", r.getAvailable());
+        if (imageChanged(r, existing)) {
+            u.set("imageUrl", r.getImageUrl());
+            String hash = ProductImageService.localHash(r.getImageUrl());
+            if (hash != null) u.set("imageHash", hash);
+            else if (existing != null) u.unset("imageHash");
+        }
+        return u;
+    }
+
+    private static boolean imageChanged(BulkProductRow r, Product existing) {
+        if (r.getImageUrl() == null) return false;
+        return existing == null || !r.getImageUrl().equals(existing.getImageUrl());
+    }
+
+    private static String idOf(BsonValue id) {
+        if (id == null) return null;
+        if (id.isObjectId()) return id.asObjectId().getValue().toHexString();
+        if (id.isString()) return id.asString().getValue();
+        return id.toString();
+    }
+
+    // mảng JSON đọc từng phần tử từ stream, không dựng cả cây JSON trong RAM
+    private void readJson(InputStream in, List<BulkProductRow> rows) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(BAD_REQUEST, "Expected a JSON array of products");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                checkLimit(rows.size());
+                try {
+                    rows.add(objectMapper.readValue(parser, BulkProductRow.class));
+                } catch (JsonProcessingException e) {
+                    throw new ResponseStatusException(BAD_REQUEST, "Invalid product at row " + (rows.size() + 1) + ": " + e.getOriginalMessage());
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new ResponseStatusException(BAD_REQUEST, "Expected product objects at row " + (rows.size() + 1));
+            }
+        }
+    }
+
+    // CSV có header (id,name,description,imageUrl,price,available; thứ tự tùy ý), hỗ trợ "..." và "" bên trong
+    private void readCsv(InputStream in, List<BulkProductRow> rows, Map<Integer, String> parseErrors) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            throw new ResponseStatusException(BAD_REQUEST, "CSV header is required");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int c = 0; c < header.size(); c++) {
+            String h = header.get(c).strip();
+            if (c == 0 && h.startsWith("\uFEFF")) h = h.substring(1);
+            String name = h;
+            String known = CSV_COLUMNS.stream().filter(k -> k.equalsIgnoreCase(name)).findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(BAD_REQUEST, "Unknown CSV column: " + name));
+            columns.put(known, c);
+        }
+        if (!columns.containsKey("id") && !columns.containsKey("name")) {
+            throw new ResponseStatusException(BAD_REQUEST, "CSV needs an id or name column");
+        }
+
+        List<String> rec;
+        while ((rec = readCsvRecord(reader)) != null) {
+            if (rec.size() == 1 && rec.get(0).isBlank()) continue;
+            checkLimit(rows.size());
+            BulkProductRow r = new BulkProductRow();
+            r.setId(cell(rec, columns, "id"));
+            r.setName(cell(rec, columns, "name"));
+            r.setDescription(cell(rec, columns, "description"));
+            r.setImageUrl(cell(rec, columns, "imageUrl"));
+            String price = cell(rec, columns, "price");
+            String available = cell(rec, columns, "available");
+            try {
+                if (price != null) r.setPrice(new BigDecimal(price.strip()));
+            } catch (NumberFormatException e) {
+                parseErrors.put(rows.size(), "Invalid price: " + price);
+            }
+            if (available != null) {
+                Boolean b = parseBoolean(available);
+                if (b == null) parseErrors.putIfAbsent(rows.size(), "Invalid available: " + available);
+                r.setAvailable(b);
+            }
+            rows.add(r);
+        }
+    }
+
+    // ô rỗng = không đổi field đó
+    private static String cell(List<String> rec, Map<String, Integer> columns, String column) {
+        Integer c = columns.get(column);
+        if (c == null || c >= rec.size()) return null;
+        String v = rec.get(c);
+        return v.isEmpty() ? null : v;
+    }
+
+    private static Boolean parseBoolean(String v) {
+        return switch (v.strip().toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "y" -> true;
+            case "false", "0", "no", "n" -> false;
+            default -> null;
+        };
+    }
+
+    // 1 bản ghi CSV (có thể nhiều dòng nếu nằm trong ngoặc kép); null khi hết stream
+    private static List<String> readCsvRecord(Reader reader) throws IOException {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        int ch = reader.read();
+        if (ch == -1) return null;
+        while (ch != -1) {
+            char c = (char) ch;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        cur.append('"');
+                    } else {
+                        quoted = false;
+                        if (next == -1) break;
+                        reader.reset();
+                    }
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"' && cur.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                cur.append(c);
+            }
+            ch = reader.read();
+        }
+        out.add(cur.toString());
+        return out;
+    }
+
+    private static void checkLimit(int count) {
+        if (count >= MAX_ROWS) {
+            throw new ResponseStatusException(PAYLOAD_TOO_LARGE, "At most " + MAX_ROWS + " rows per import");
+        }
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+}
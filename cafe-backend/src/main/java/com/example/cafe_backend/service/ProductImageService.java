@@ -0,0 +1,471 @@
+package com.example.cafe_backend.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.model.Product;
+
+import jakarta.annotation.PreDestroy;
+
+import static org.springframework.http.HttpStatus.*;
+
+// Ảnh sản phẩm: tải/nhận ảnh gốc 1 lần, lưu theo sha-256 nội dung ({dir}/{ab}/{hash}/orig, 64.jpg, 256.jpg, 512.jpg).
+// Cùng nội dung -> cùng đường dẫn, nên file đã ghi không bao giờ đổi và có thể cache vĩnh viễn phía client.
+@Service
+public class ProductImageService {
+    private static final Logger log = LoggerFactory.getLogger(ProductImageService.class);
+    public static final List<Integer> SIZES = List.of(64, 256, 512);
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    // ảnh đã thuộc về server (upload): /api/images/{hash}/{size}
+    private static final Pattern LOCAL_URL = Pattern.compile("^/api/images/([0-9a-f]{64})(/\\d+)?$");
+    private static final long MAX_PIXELS = 40_000_000L;
+    private static final int MAX_REDIRECTS = 3;
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+
+    private final MongoTemplate mongoTemplate;
+    private final MenuCatalog menuCatalog;
+    private final Path root;
+    private final long maxBytes;
+    private final boolean fetchRemote;
+    private final boolean allowPrivateHosts;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "product-image");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ProductImageService(MongoTemplate mongoTemplate, MenuCatalog menuCatalog,
+                               @Value("${app.images.dir:data/images}") String dir,
+                               @Value("${app.images.max-bytes:10485760}") long maxBytes,
+                               @Value("${app.images.fetch-remote:true}") boolean fetchRemote,
+                               @Value("${app.images.allow-private-hosts:false}") boolean allowPrivateHosts) {
+        this.mongoTemplate = mongoTemplate;
+        this.menuCatalog = menuCatalog;
+        this.root = Path.of(dir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.fetchRemote = fetchRemote;
+        this.allowPrivateHosts = allowPrivateHosts;
+    }
+
+    // sản phẩm cũ có imageUrl nhưng chưa có thumbnail
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Query q = Query.query(Criteria.where("imageUrl").nin(null, "").and("imageHash").exists(false));
+        q.fields().include("imageUrl");
+        for (Product p : mongoTemplate.find(q, Product.class)) {
+            refreshAsync(p);
+        }
+    }
+
+    // gọi sau khi lưu product; tải ảnh ở nền, không làm chậm/hỏng request admin
+    public void refreshAsync(Product p) {
+        if (p.getImageUrl() == null || p.getImageUrl().isBlank()) return;
+        String id = p.getId();
+        String url = p.getImageUrl();
+        executor.execute(() -> {
+            try {
+                String hash = localHash(url);
+                if (hash == null) {
+                    if (!fetchRemote) return;
+                    hash = ingest(fetch(url));
+                }
+                attach(id, url, hash);
+            } catch (RuntimeException e) {
+                log.warn("Could not build thumbnails for product {} from {}: {}", id, url, e.getMessage());
+            }
+        });
+    }
+
+    // upload trực tiếp (không cần mạng): ảnh thành ảnh chính của sản phẩm
+    public Product upload(String productId, byte[] bytes) {
+        String hash = ingest(bytes);
+        Product updated = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(productId)),
+                new Update().set("imageHash", hash).set("imageUrl", "/api/images/" + hash + "/512")
+                        .set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (updated == null) {
+            throw new ResponseStatusException(NOT_FOUND, "Product not found");
+        }
+        menuCatalog.put(updated);
+        return updated;
+    }
+
+    // imageUrl trỏ về chính ảnh đã upload -> lấy hash luôn, khỏi tải
+    public static String localHash(String imageUrl) {
+        if (imageUrl == null) return null;
+        Matcher m = LOCAL_URL.matcher(imageUrl);
+        return m.matches() ? m.group(1) : null;
+    }
+
+    // size được làm tròn lên cỡ có sẵn gần nhất
+    public static int normalizeSize(int requested) {
+        for (int s : SIZES) {
+            if (requested <= s) return s;
+        }
+        return SIZES.get(SIZES.size() - 1);
+    }
+
+    // file thumbnail trên đĩa; tạo lại từ ảnh gốc nếu thiếu. null nếu không có ảnh này
+    public Path thumbnail(String hash, int size) {
+        if (hash == null || !HASH.matcher(hash).matches() || !SIZES.contains(size)) {
+            return null;
+        }
+        Path dir = dirFor(hash);
+        for (String ext : List.of(".jpg", ".png")) {
+            Path p = dir.resolve(size + ext);
+            if (Files.isRegularFile(p)) return p;
+        }
+        Path orig = dir.resolve("orig");
+        if (!Files.isRegularFile(orig)) return null;
+        try {
+            writeThumbnails(dir, decode(Files.readAllBytes(orig)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return thumbnail(hash, size);
+    }
+
+    public String ingest(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new ResponseStatusException(BAD_REQUEST, "Empty image");
+        }
+        if (bytes.length > maxBytes) {
+            throw new ResponseStatusException(PAYLOAD_TOO_LARGE, "Image too large");
+        }
+        BufferedImage image = decode(bytes);
+        String hash = sha256(bytes);
+        Path dir = dirFor(hash);
+        try {
+            Files.createDirectories(dir);
+            Path orig = dir.resolve("orig");
+            if (!Files.exists(orig)) {
+                writeAtomically(orig, bytes);
+            }
+            writeThumbnails(dir, image);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return hash;
+    }
+
+    private void attach(String productId, String url, String hash) {
+        // chỉ gắn nếu imageUrl chưa bị đổi tiếp trong lúc tải
+        Product updated = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(productId).and("imageUrl").is(url)),
+                Update.update("imageHash", hash), FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (updated != null) {
+            menuCatalog.put(updated);
+        }
+    }
+
+    // tự đi theo redirect để kiểm tra lại host ở mỗi bước
+    private byte[] fetch(String url) {
+        URI uri = URI.create(url.trim());
+        for (int hop = 0; hop <= MAX_REDIRECTS; hop++) {
+            InetAddress target = checkTarget(uri);
+            try {
+                Fetched res = get(uri, target);
+                if (res.status() >= 300 && res.status() < 400) {
+                    if (res.location() == null) {
+                        throw new IllegalStateException("Redirect without Location from " + uri);
+                    }
+                    uri = uri.resolve(res.location());
+                    continue;
+                }
+                if (res.status() != 200) {
+                    throw new IllegalStateException("HTTP " + res.status() + " from " + uri);
+                }
+                return res.body();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        throw new IllegalStateException("Too many redirects");
+    }
+
+    // GET qua socket tới đúng địa chỉ checkTarget đã duyệt (không resolve lại tên -> DNS rebinding không lách được),
+    // Host/SNI/kiểm tra chứng chỉ vẫn theo tên host. HTTP/1.0 + Connection: close nên body đọc tới hết stream, không chunked.
+    private Fetched get(URI uri, InetAddress target) throws IOException {
+        boolean https = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : https ? 443 : 80;
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(target, port), CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            if (https) {
+                SSLSocket ssl = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+                        .createSocket(socket, uri.getHost(), port, true);
+                SSLParameters params = ssl.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(params);
+                ssl.startHandshake();
+                socket = ssl;
+            }
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) path += "?" + uri.getRawQuery();
+            String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + path + " HTTP/1.0\r\nHost: " + host + "\r\nAccept: image/*\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            String statusLine = readLine(in);
+            String[] parts = statusLine == null ? new String[0] : statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed HTTP response from " + uri);
+            }
+            int status;
+            try {
+                status = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed HTTP status from " + uri);
+            }
+            String location = null;
+            long contentLength = -1;
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon <= 0) continue;
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                switch (name) {
+                    case "location" -> location = value;
+                    case "content-length" -> contentLength = parseLength(value);
+                    case "transfer-encoding" -> {
+                        if (!value.equalsIgnoreCase("identity")) {
+                            throw new IOException("Unsupported Transfer-Encoding from " + uri + ": " + value);
+                        }
+                    }
+                    default -> { }
+                }
+            }
+            if (status != 200) return new Fetched(status, location, null);
+            if (contentLength > maxBytes) {
+                throw new IllegalStateException("Image larger than " + maxBytes + " bytes");
+            }
+            long limit = contentLength >= 0 ? contentLength : maxBytes + 1;
+            byte[] body = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, limit));
+            if (body.length > maxBytes) {
+                throw new IllegalStateException("Image larger than " + maxBytes + " bytes");
+            }
+            if (contentLength >= 0 && body.length < contentLength) {
+                throw new IOException("Truncated image from " + uri);
+            }
+            return new Fetched(status, location, body);
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static long parseLength(String v) throws IOException {
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Content-Length: " + v);
+        }
+    }
+
+    // 1 dòng header (ISO-8859-1, bỏ CRLF); null khi hết stream
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') break;
+            if (sb.length() >= MAX_HEADER_LINE) throw new IOException("HTTP header line too long");
+            sb.append((char) b);
+        }
+        if (b == -1 && sb.isEmpty()) return null;
+        if (!sb.isEmpty() && sb.charAt(sb.length() - 1) == '\r') sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    // chặn SSRF: chỉ http/https tới địa chỉ công khai; trả về địa chỉ đã duyệt để kết nối thẳng tới nó
+    private InetAddress checkTarget(URI uri) {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase();
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IllegalStateException("Unsupported image URL scheme: " + uri);
+        }
+        if (uri.getHost() == null) {
+            throw new IllegalStateException("Image URL has no host: " + uri);
+        }
+        try {
+            InetAddress[] addresses = InetAddress.getAllByName(uri.getHost());
+            if (allowPrivateHosts) return addresses[0];
+            for (InetAddress a : addresses) {
+                if (a.isLoopbackAddress() || a.isSiteLocalAddress() || a.isLinkLocalAddress()
+                        || a.isAnyLocalAddress() || a.isMulticastAddress()
+                        || (a instanceof Inet6Address && (a.getAddress()[0] & 0xfe) == 0xfc)) {
+                    throw new IllegalStateException("Image host resolves to a private address: " + uri.getHost());
+                }
+            }
+            return addresses[0];
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Unknown image host: " + uri.getHost());
+        }
+    }
+
+    private static BufferedImage decode(byte[] bytes) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new ResponseStatusException(UNSUPPORTED_MEDIA_TYPE, "Not a supported image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // đọc kích thước trước khi giải nén để tránh ảnh "bom" hàng tỉ pixel
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new ResponseStatusException(PAYLOAD_TOO_LARGE, "Image dimensions too large");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(UNSUPPORTED_MEDIA_TYPE, "Unreadable image");
+        }
+    }
+
+    private static void writeThumbnails(Path dir, BufferedImage src) throws IOException {
+        boolean alpha = src.getColorModel().hasAlpha();
+        for (int size : SIZES) {
+            Path target = dir.resolve(size + (alpha ? ".png" : ".jpg"));
+            if (Files.exists(target)) continue;
+            BufferedImage scaled = scale(src, size, alpha);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (alpha) {
+                ImageIO.write(scaled, "png", out);
+            } else {
+                writeJpeg(scaled, out);
+            }
+            writeAtomically(target, out.toByteArray());
+        }
+    }
+
+    // thu nhỏ từng nửa một cho đến gần cỡ đích rồi mới bilinear, tránh răng cưa khi giảm nhiều lần
+    private static BufferedImage scale(BufferedImage src, int box, boolean alpha) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double ratio = Math.min(1.0, Math.min((double) box / w, (double) box / h));
+        int tw = Math.max(1, (int) Math.round(w * ratio));
+        int th = Math.max(1, (int) Math.round(h * ratio));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = src;
+        int cw = w;
+        int ch = h;
+        do {
+            cw = Math.max(tw, cw / 2);
+            ch = Math.max(th, ch / 2);
+            if (cw < tw * 2 && ch < th * 2) {
+                cw = tw;
+                ch = th;
+            }
+            BufferedImage next = new BufferedImage(cw, ch, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, cw, ch, null);
+            g.dispose();
+            current = next;
+        } while (cw != tw || ch != th);
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, ByteArrayOutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.82f);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), ".tmp-", null);
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path dirFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Fetched(int status, String location, byte[] body) {}
+}
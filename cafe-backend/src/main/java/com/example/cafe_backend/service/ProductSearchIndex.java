@@ -0,0 +1,267 @@
+package com.example.cafe_backend.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.model.Product;
+import com.example.cafe_backend.repository.ProductRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+// Tìm sản phẩm trong RAM: trie tiền tố trên từng từ của tên + trigram trên tên và mô tả, tất cả đã bỏ dấu
+// ("ca phe" khớp "Cà phê", "cafe sữa" vẫn ra "Cà phê sữa" nhờ trigram). Cập nhật từng sản phẩm từ ProductService.
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+    // tỉ lệ trigram tối thiểu để coi 1 từ là khớp gần đúng
+    private static final double MIN_SIMILARITY = 0.34;
+
+    private final ProductRepository productRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TrieNode trie = new TrieNode();
+    private final Map<String, Set<String>> nameTrigrams = new HashMap<>();
+    private final Map<String, Set<String>> descriptionTrigrams = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        backfillNormalizedNames();
+        rebuild();
+    }
+
+    // dựng lại toàn bộ (khởi động, sau import hàng loạt)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            trie.children.clear();
+            trie.ids.clear();
+            nameTrigrams.clear();
+            descriptionTrigrams.clear();
+            for (Product p : productRepository.findAll()) {
+                add(p);
+            }
+            log.info("Product search index built with {} products", entries.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Product p) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(p.getId());
+            add(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SearchHit> search(String query, int limit, boolean includeUnavailable) {
+        List<String> terms = TextNormalizer.tokens(TextNormalizer.fold(query));
+        if (terms.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = null;
+            for (String term : terms) {
+                Map<String, Double> termScores = scoreTerm(term);
+                // mọi từ trong query đều phải khớp (chính xác, tiền tố hoặc gần đúng)
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<String, Double> next = new HashMap<>();
+                    for (Map.Entry<String, Double> e : scores.entrySet()) {
+                        Double s = termScores.get(e.getKey());
+                        if (s != null) next.put(e.getKey(), e.getValue() + s);
+                    }
+                    scores = next;
+                }
+                if (scores.isEmpty()) return List.of();
+            }
+
+            String phrase = String.join(" ", terms);
+            List<SearchHit> hits = new ArrayList<>();
+            for (Map.Entry<String, Double> e : scores.entrySet()) {
+                Entry en = entries.get(e.getKey());
+                if (en == null || (!includeUnavailable && !en.available)) continue;
+                double score = e.getValue();
+                if (en.foldedName.equals(phrase)) score += 5;
+                else if (en.foldedName.startsWith(phrase)) score += 2;
+                hits.add(new SearchHit(en.id, en.name, en.price, en.imageUrl, en.available, Math.round(score * 100) / 100.0));
+            }
+            hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed().thenComparing(SearchHit::getName));
+            return hits.size() > limit ? hits.subList(0, limit) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // điểm 1 từ: trùng nguyên từ 3, tiền tố 2, gần đúng theo trigram (tên) <= 1, mô tả <= 0.5
+    private Map<String, Double> scoreTerm(String term) {
+        Map<String, Double> out = new HashMap<>();
+        TrieNode node = trie;
+        for (int i = 0; i < term.length() && node != null; i++) {
+            node = node.children.get(term.charAt(i));
+        }
+        if (node != null) {
+            for (String id : node.ids) {
+                Entry en = entries.get(id);
+                out.put(id, en != null && en.nameTokens.contains(term) ? 3.0 : 2.0);
+            }
+        }
+        Set<String> grams = trigrams(term);
+        if (grams.isEmpty()) return out;
+        mergeSimilar(out, grams, nameTrigrams, 1.0);
+        mergeSimilar(out, grams, descriptionTrigrams, 0.5);
+        return out;
+    }
+
+    private static void mergeSimilar(Map<String, Double> out, Set<String> grams, Map<String, Set<String>> index, double weight) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String g : grams) {
+            Set<String> ids = index.get(g);
+            if (ids == null) continue;
+            for (String id : ids) counts.merge(id, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            double sim = (double) e.getValue() / grams.size();
+            if (sim >= MIN_SIMILARITY) {
+                out.merge(e.getKey(), sim * weight, Math::max);
+            }
+        }
+    }
+
+    private void add(Product p) {
+        String foldedName = TextNormalizer.fold(p.getName());
+        String foldedDescription = TextNormalizer.fold(p.getDescription());
+        Entry en = new Entry(p.getId(), p.getName(), p.getPrice(), p.getImageUrl(), p.isAvailable(), foldedName,
+                new LinkedHashSet<>(TextNormalizer.tokens(foldedName)), foldedDescription);
+        entries.put(en.id, en);
+        for (String token : en.nameTokens) {
+            TrieNode node = trie;
+            for (int i = 0; i < token.length(); i++) {
+                node = node.children.computeIfAbsent(token.charAt(i), c -> new TrieNode());
+                node.ids.add(en.id);
+            }
+        }
+        for (String g : trigramsOf(en.nameTokens)) nameTrigrams.computeIfAbsent(g, k -> new HashSet<>()).add(en.id);
+        for (String g : trigramsOf(TextNormalizer.tokens(foldedDescription))) {
+            descriptionTrigrams.computeIfAbsent(g, k -> new HashSet<>()).add(en.id);
+        }
+    }
+
+    private void removeInternal(String id) {
+        Entry en = entries.remove(id);
+        if (en == null) return;
+        for (String token : en.nameTokens) {
+            TrieNode node = trie;
+            for (int i = 0; i < token.length() && node != null; i++) {
+                TrieNode child = node.children.get(token.charAt(i));
+                if (child == null) break;
+                child.ids.remove(id);
+                if (child.ids.isEmpty()) {
+                    node.children.remove(token.charAt(i));
+                    break;
+                }
+                node = child;
+            }
+        }
+        unindex(nameTrigrams, trigramsOf(en.nameTokens), id);
+        unindex(descriptionTrigrams, trigramsOf(TextNormalizer.tokens(en.foldedDescription)), id);
+    }
+
+    private static void unindex(Map<String, Set<String>> index, Set<String> grams, String id) {
+        for (String g : grams) {
+            Set<String> ids = index.get(g);
+            if (ids == null) continue;
+            ids.remove(id);
+            if (ids.isEmpty()) index.remove(g);
+        }
+    }
+
+    private static Set<String> trigramsOf(Iterable<String> tokens) {
+        Set<String> out = new HashSet<>();
+        for (String t : tokens) out.addAll(trigrams(t));
+        return out;
+    }
+
+    // đệm 2 đầu để từ ngắn ("tra") vẫn có trigram và đầu từ được ưu tiên
+    private static Set<String> trigrams(String token) {
+        Set<String> out = new HashSet<>();
+        if (token.isEmpty()) return out;
+        String padded = "  " + token + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            out.add(padded.substring(i, i + 3));
+        }
+        return out;
+    }
+
+    // sản phẩm tạo trước khi có normalizedName: điền vào để unique index có hiệu lực
+    private void backfillNormalizedNames() {
+        Query q = Query.query(Criteria.where("normalizedName").exists(false));
+        q.fields().include("name");
+        for (Product p : mongoTemplate.find(q, Product.class)) {
+            try {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(p.getId())),
+                        Update.update("normalizedName", TextNormalizer.normalizedName(p.getName())), Product.class);
+            } catch (DuplicateKeyException e) {
+                log.warn("Product {} '{}' duplicates another product name after normalization", p.getId(), p.getName());
+            }
+        }
+    }
+
+    private static final class TrieNode {
+        final Map<Character, TrieNode> children = new HashMap<>();
+        // sản phẩm có ít nhất 1 từ bắt đầu bằng tiền tố tới node này
+        final Set<String> ids = new HashSet<>();
+    }
+
+    private record Entry(String id, String name, BigDecimal price, String imageUrl, boolean available,
+                         String foldedName, Set<String> nameTokens, String foldedDescription) {}
+
+    @Data
+    @AllArgsConstructor
+    public static class SearchHit {
+        private String id;
+        private String name;
+        private BigDecimal price;
+        private String imageUrl;
+        private boolean available;
+        private double score;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.cafe_backend.service;
 import java.time.Instant;
 import java.util.List;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -18,19 +19,31 @@ import static org.springframework.http.HttpStatus.*;
 @RequiredArgsConstructor
 public class ProductService {
     private final ProductRepository productRepository;
+    private final MenuCatalog menuCatalog;
+    private final ProductSearchIndex searchIndex;
+    private final ProductImageService imageService;
 
     public Product create(ProductRequest req) {
-        if (productRepository.existsByNameIgnoreCase(req.getName())) {
+        String normalized = TextNormalizer.normalizedName(req.getName());
+        if (productRepository.existsByNormalizedName(normalized)) {
             throw new ResponseStatusException(BAD_REQUEST, "Product name exists");
         }
         Product p = Product.builder()
                 .name(req.getName())
+                .normalizedName(normalized)
                 .description(req.getDescription())
         .imageUrl(req.getImageUrl())
                 .price(req.getPrice())
                 .available(req.getAvailable() == null ? true : req.getAvailable())
+                .imageHash(ProductImageService.localHash(req.getImageUrl()))
                 .build();
-        return productRepository.save(p);
+        Product saved = save(p);
+        menuCatalog.put(saved);
+        searchIndex.put(saved);
+        if (saved.getImageHash() == null) {
+            imageService.refreshAsync(saved);
+        }
+        return saved;
     }
 
     public List<Product> listAvailable() {
@@ -44,18 +57,37 @@ public class ProductService {
     public Product update(String id, ProductRequest req) {
         Product p = productRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Product not found"));
-        if (req.getName() != null && !req.getName().isBlank() && !req.getName().equalsIgnoreCase(p.getName())) {
-            if (productRepository.existsByNameIgnoreCase(req.getName())) {
+        if (req.getName() != null && !req.getName().isBlank()) {
+            String normalized = TextNormalizer.normalizedName(req.getName());
+            if (!normalized.equals(p.getNormalizedName()) && productRepository.existsByNormalizedName(normalized)) {
                 throw new ResponseStatusException(BAD_REQUEST, "Product name exists");
             }
             p.setName(req.getName());
+            p.setNormalizedName(normalized);
         }
         if (req.getDescription() != null) p.setDescription(req.getDescription());
-        if (req.getImageUrl() != null) p.setImageUrl(req.getImageUrl());
+        // ảnh đổi -> bỏ hash cũ; thumbnail mới được tạo ở nền và mang hash (URL) mới
+        boolean imageChanged = req.getImageUrl() != null && !req.getImageUrl().equals(p.getImageUrl());
+        if (imageChanged) {
+            p.setImageUrl(req.getImageUrl());
+            p.setImageHash(ProductImageService.localHash(req.getImageUrl()));
+        }
         if (req.getPrice() != null) p.setPrice(req.getPrice());
         if (req.getAvailable() != null) p.setAvailable(req.getAvailable());
         p.setUpdatedAt(Instant.now());
-        return productRepository.save(p);
+        Product saved = save(p);
+        menuCatalog.put(saved);
+        searchIndex.put(saved);
+        if (imageChanged && saved.getImageHash() == null) {
+            imageService.refreshAsync(saved);
+        }
+        return saved;
+    }
+
+    public Product uploadImage(String id, byte[] bytes) {
+        Product saved = imageService.upload(id, bytes);
+        searchIndex.put(saved);
+        return saved;
     }
 
     public void delete(String id) {
@@ -63,5 +95,21 @@ public class ProductService {
             throw new ResponseStatusException(NOT_FOUND, "Product not found");
         }
         productRepository.deleteById(id);
+        menuCatalog.remove(id);
+        searchIndex.remove(id);
+    }
+
+    public List<ProductSearchIndex.SearchHit> search(String q, int limit, boolean includeUnavailable) {
+        int n = limit <= 0 ? 20 : Math.min(limit, 100);
+        return searchIndex.search(q, n, includeUnavailable);
+    }
+
+    // exists-check rồi save vẫn có thể đua nhau: unique index là chốt chặn cuối
+    private Product save(Product p) {
+        try {
+            return productRepository.save(p);
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Product name exists");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.example.cafe_backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+// JSON của menu công khai và danh sách bàn, serialize + gzip sẵn 1 lần mỗi khi dữ liệu đổi.
+// Menu gắn với version của MenuCatalog, bàn với version của FloorState; ETag = hash nội dung.
+@Component
+@RequiredArgsConstructor
+public class PublicPayloadCache {
+    private final MenuCatalog menuCatalog;
+    private final FloorState floorState;
+    private final ObjectMapper objectMapper;
+
+    private volatile Payload menu;
+    private volatile Payload tables;
+
+    public Payload menu() {
+        MenuCatalog.Snapshot snapshot = menuCatalog.current();
+        Payload p = menu;
+        if (p != null && p.version == snapshot.version()) {
+            return p;
+        }
+        synchronized (this) {
+            p = menu;
+            if (p == null || p.version != snapshot.version()) {
+                // cùng thứ tự với findByAvailableTrueOrderByNameAsc
+                List<MenuCatalog.Item> items = snapshot.items().stream()
+                        .filter(MenuCatalog.Item::available)
+                        .sorted(Comparator.comparing(MenuCatalog.Item::name, Comparator.nullsFirst(Comparator.naturalOrder())))
+                        .toList();
+                p = build(snapshot.version(), items);
+                menu = p;
+            }
+            return p;
+        }
+    }
+
+    public Payload tables() {
+        FloorState.Snapshot snapshot = floorState.current();
+        Payload p = tables;
+        if (p != null && p.version == snapshot.version()) {
+            return p;
+        }
+        synchronized (this) {
+            p = tables;
+            if (p == null || p.version != snapshot.version()) {
+                p = build(snapshot.version(), snapshot.all());
+                tables = p;
+            }
+            return p;
+        }
+    }
+
+    private Payload build(long version, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+                gz.write(json);
+            }
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            String hash = HexFormat.of().formatHex(digest, 0, 16);
+            return new Payload(version, json, buf.toByteArray(), hash);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize public payload", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static final class Payload {
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzip;
+        // ETag mạnh phải khác nhau theo Content-Encoding; cùng nội dung nên khớp cái nào cũng 304
+        private final String etag;
+        private final String gzipEtag;
+
+        private Payload(long version, byte[] json, byte[] gzip, String hash) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = "\"" + hash + "\"";
+            this.gzipEtag = "\"" + hash + "-gz\"";
+        }
+
+        // 304 nếu If-None-Match khớp; gzip nếu client nhận được, không thì JSON thô
+        public ResponseEntity<byte[]> toResponse(String ifNoneMatch, String acceptEncoding, CacheControl cacheControl) {
+            boolean gzipOk = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+            if (matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(gzipOk ? gzipEtag : etag)
+                        .cacheControl(cacheControl)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+            ResponseEntity.BodyBuilder b = ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzipOk) {
+                return b.eTag(gzipEtag).header(HttpHeaders.CONTENT_ENCODING, "gzip").contentLength(gzip.length).body(gzip);
+            }
+            return b.eTag(etag).contentLength(json.length).body(json);
+        }
+
+        private boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) return false;
+            for (String tag : ifNoneMatch.split(",")) {
+                String t = tag.trim();
+                if (t.equals("*") || t.equals(etag) || t.equals(gzipEtag)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.cafe_backend.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.config.CacheConfig;
+import com.example.cafe_backend.event.OrderChangedEvent;
+import com.example.cafe_backend.model.Order;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Report results keyed by window. Windows that ended before now are immutable (paidAt is always "now"),
+// so they live in the size-bounded past cache; windows still open go to the live cache and are dropped
+// as soon as any order event (by event time or by the order's createdAt) lands inside them.
+@Component
+public class ReportCache {
+    private final Cache<Object, Object> past;
+    private final Cache<Object, Object> live;
+    // tăng mỗi lần invalidate/clear; kết quả live tính xong dưới generation cũ thì không được cache
+    private final AtomicLong generation = new AtomicLong();
+
+    public ReportCache(CacheManager cacheManager) {
+        this.past = nativeCache(cacheManager, CacheConfig.REPORTS_PAST);
+        this.live = nativeCache(cacheManager, CacheConfig.REPORTS_LIVE);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, Instant start, Instant end, Object params, Supplier<T> loader) {
+        Key key = new Key(kind, start, end, params);
+        if (!end.isAfter(Instant.now())) {
+            return (T) past.get(key, k -> loader.get());
+        }
+        return live(key, loader);
+    }
+
+    // kết quả còn phụ thuộc trạng thái hiện tại của order (vd đếm theo fulfillment/payment của order tạo trong
+    // khoảng): cửa sổ đã qua vẫn đổi được nên luôn đi live cache, dù end < now
+    public <T> T getLive(String kind, Instant start, Instant end, Object params, Supplier<T> loader) {
+        return live(new Key(kind, start, end, params), loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T live(Key key, Supplier<T> loader) {
+        if (live.getIfPresent(key) instanceof Stamped hit) {
+            return (T) hit.value();
+        }
+        // query có thể bắt đầu trước 1 PAID event và xong sau khi invalidate đã chạy -> kết quả đó đã cũ
+        long gen = generation.get();
+        T value = loader.get();
+        if (generation.get() != gen) return value;
+        Stamped entry = new Stamped(gen, value);
+        live.put(key, entry);
+        // invalidate chen vào giữa lần kiểm tra trên và put: tự gỡ bản vừa put
+        if (generation.get() != gen) live.asMap().remove(key, entry);
+        return value;
+    }
+
+    // chạy sau RevenueRollupService để không cache lại số liệu rollup cũ.
+    // Mọi loại event: doanh thu đi theo paidAt, còn đếm trạng thái của dashboard đi theo createdAt nên
+    // CREATED và mỗi bước fulfillment cũng làm cũ các cửa sổ chứa createdAt của order
+    @EventListener
+    @org.springframework.core.annotation.Order(Ordered.LOWEST_PRECEDENCE)
+    public void onOrderChanged(OrderChangedEvent e) {
+        Order o = e.getOrder();
+        Instant at = e.getType() == OrderChangedEvent.Type.PAID && o.getPaidAt() != null ? o.getPaidAt()
+                : o.getUpdatedAt() != null ? o.getUpdatedAt() : Instant.now();
+        if (o.getCreatedAt() != null && !o.getCreatedAt().equals(at)) {
+            invalidate(at, o.getCreatedAt());
+        } else {
+            invalidate(at);
+        }
+    }
+
+    // drop every live window that contains one of the instants
+    public void invalidate(Instant... instants) {
+        generation.incrementAndGet();
+        live.asMap().keySet().removeIf(k -> k instanceof Key key && containsAny(key, instants));
+    }
+
+    private static boolean containsAny(Key key, Instant[] instants) {
+        for (Instant at : instants) {
+            if (!at.isBefore(key.start()) && at.isBefore(key.end())) return true;
+        }
+        return false;
+    }
+
+    // maintenance (backfill, rollup rebuild) can rewrite history: drop everything
+    public void clear() {
+        generation.incrementAndGet();
+        past.invalidateAll();
+        live.invalidateAll();
+    }
+
+    public Map<String, CacheStatsView> stats() {
+        Map<String, CacheStatsView> out = new LinkedHashMap<>();
+        out.put(CacheConfig.REPORTS_PAST, CacheStatsView.of(past));
+        out.put(CacheConfig.REPORTS_LIVE, CacheStatsView.of(live));
+        return out;
+    }
+
+    private static Cache<Object, Object> nativeCache(CacheManager cacheManager, String name) {
+        return ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+    }
+
+    private record Key(String kind, Instant start, Instant end, Object params) {}
+
+    private record Stamped(long generation, Object value) {}
+
+    @Data
+    @AllArgsConstructor
+    public static class CacheStatsView {
+        private long size;
+        private long hits;
+        private long misses;
+        private double hitRate;
+        private long evictions;
+
+        static CacheStatsView of(Cache<Object, Object> cache) {
+            CacheStats s = cache.stats();
+            return new CacheStatsView(cache.estimatedSize(), s.hitCount(), s.missCount(), s.hitRate(), s.evictionCount());
+        }
+    }
+}
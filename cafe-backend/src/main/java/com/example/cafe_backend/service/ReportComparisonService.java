@@ -0,0 +1,202 @@
+package com.example.cafe_backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.service.ReportService.SummaryReportResult;
+import com.example.cafe_backend.service.ReportService.TopProductItem;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import static org.springframework.http.HttpStatus.*;
+
+// So sánh nhiều kỳ (tuần này/tuần trước, tháng này/cùng kỳ năm trước...) trong 1 request:
+// mỗi kỳ chạy range + top-products song song trên pool giới hạn, delta tính so với kỳ đầu tiên
+@Service
+public class ReportComparisonService {
+    public static final int MAX_PERIODS = 12;
+    private static final int THREADS = 4;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final ReportService reportService;
+    // hàng đợi có giới hạn + CallerRuns: khi pool bận, thread request tự chạy thay vì xếp hàng vô hạn
+    private final ThreadPoolExecutor executor;
+
+    public ReportComparisonService(ReportService reportService) {
+        this.reportService = reportService;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PERIODS * 2 * THREADS), r -> {
+                    Thread t = new Thread(r, "report-compare-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public ComparisonResult compare(List<Period> periods, ZoneId zoneId, int limit) {
+        if (periods == null || periods.isEmpty()) {
+            throw new ResponseStatusException(BAD_REQUEST, "At least one period is required");
+        }
+        if (periods.size() > MAX_PERIODS) {
+            throw new ResponseStatusException(BAD_REQUEST, "At most " + MAX_PERIODS + " periods");
+        }
+        for (Period p : periods) {
+            if (p.getEnd().isBefore(p.getStart())) {
+                throw new ResponseStatusException(BAD_REQUEST, "end must be on/after start: " + p.getStart() + ".." + p.getEnd());
+            }
+        }
+        int n = limit <= 0 ? 10 : limit;
+
+        // submit() trả FutureTask: cancel(true) ngắt được thread đang chạy (CompletableFuture thì không)
+        List<Future<SummaryReportResult>> totals = new ArrayList<>();
+        List<Future<List<TopProductItem>>> tops = new ArrayList<>();
+        for (Period p : periods) {
+            totals.add(executor.submit(() -> reportService.range(p.getStart(), p.getEnd(), zoneId)));
+            tops.add(executor.submit(() -> reportService.topProducts(p.getStart(), p.getEnd(), zoneId, n)));
+        }
+        List<Future<?>> all = new ArrayList<>(totals);
+        all.addAll(tops);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        try {
+            for (Future<?> f : all) {
+                f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            all.forEach(f -> f.cancel(true));
+            throw new ResponseStatusException(GATEWAY_TIMEOUT, "Comparison report timed out");
+        } catch (InterruptedException e) {
+            all.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Interrupted");
+        } catch (ExecutionException e) {
+            all.forEach(f -> f.cancel(true));
+            throw unwrap(e.getCause());
+        }
+
+        SummaryReportResult base = done(totals.get(0));
+        Map<String, Long> baseQty = new HashMap<>();
+        for (TopProductItem it : done(tops.get(0))) baseQty.put(it.getProductId(), it.getQuantity());
+
+        List<PeriodResult> out = new ArrayList<>();
+        for (int i = 0; i < periods.size(); i++) {
+            Period p = periods.get(i);
+            SummaryReportResult t = done(totals.get(i));
+            List<ProductDelta> products = done(tops.get(i)).stream()
+                    .map(it -> new ProductDelta(it.getProductId(), it.getName(), it.getQuantity(), it.getRevenue(),
+                            baseQty.containsKey(it.getProductId()) ? it.getQuantity() - baseQty.get(it.getProductId()) : null))
+                    .toList();
+            out.add(new PeriodResult(p.getStart(), p.getEnd(), t, averageOrderValue(t), products, i == 0 ? null : delta(base, t)));
+        }
+        return new ComparisonResult(zoneId.getId(), out);
+    }
+
+    private static Delta delta(SummaryReportResult base, SummaryReportResult t) {
+        BigDecimal baseRev = nz(base.getTotalRevenue());
+        BigDecimal rev = nz(t.getTotalRevenue());
+        return new Delta(rev.subtract(baseRev), percent(rev, baseRev),
+                t.getOrdersCount() - base.getOrdersCount(),
+                percent(BigDecimal.valueOf(t.getOrdersCount()), BigDecimal.valueOf(base.getOrdersCount())),
+                t.getGuests() - base.getGuests(),
+                percent(BigDecimal.valueOf(t.getGuests()), BigDecimal.valueOf(base.getGuests())));
+    }
+
+    // null khi kỳ gốc = 0 (không chia được)
+    private static BigDecimal percent(BigDecimal value, BigDecimal base) {
+        if (base.signum() == 0) return null;
+        return value.subtract(base).multiply(BigDecimal.valueOf(100)).divide(base, 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal averageOrderValue(SummaryReportResult t) {
+        if (t.getOrdersCount() == 0) return BigDecimal.ZERO;
+        return nz(t.getTotalRevenue()).divide(BigDecimal.valueOf(t.getOrdersCount()), 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal nz(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+
+    // chỉ gọi sau khi mọi future đã xong
+    private static <T> T done(Future<T> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Interrupted");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException re ? re : new IllegalStateException(cause);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Period {
+        private LocalDate start;
+        private LocalDate end;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ComparisonResult {
+        private String zone;
+        private List<PeriodResult> periods;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PeriodResult {
+        private LocalDate start;
+        private LocalDate end;
+        private SummaryReportResult totals;
+        private BigDecimal averageOrderValue;
+        private List<ProductDelta> topProducts;
+        private Delta delta;    // so với kỳ đầu tiên; null ở chính kỳ đầu
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Delta {
+        private BigDecimal revenue;
+        private BigDecimal revenuePct;
+        private long ordersCount;
+        private BigDecimal ordersCountPct;
+        private long guests;
+        private BigDecimal guestsPct;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ProductDelta {
+        private String productId;
+        private String name;
+        private long quantity;
+        private BigDecimal revenue;
+        private Long quantityDelta;  // null nếu sản phẩm không nằm trong top của kỳ đầu
+    }
+}
@@ -4,34 +4,61 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.example.cafe_backend.repository.HourlyRevenueRepository;
 import com.example.cafe_backend.repository.OrderRepository;
-import com.example.cafe_backend.model.Order;
-import com.example.cafe_backend.model.PaymentStatus;
+import com.example.cafe_backend.repository.ProductHourlySalesRepository;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 
+import static org.springframework.http.HttpStatus.*;
+
 @Service
 @RequiredArgsConstructor
 public class ReportService {
     private final OrderRepository orderRepository;
+    private final HourlyRevenueRepository hourlyRevenueRepository;
+    private final ProductHourlySalesRepository productHourlySalesRepository;
+    private final ReportCache reportCache;
+    private final TrendingProductsTracker trendingProductsTracker;
+    private final FulfillmentLatencyTracker fulfillmentLatencyTracker;
+    private final ObjectProvider<PaidOrderColumnStore> columnStore;
+    private final TableOccupancyService tableOccupancyService;
 
     public DailyReportResult daily(LocalDate date, ZoneId zoneId) {
         Instant start = date.atStartOfDay(zoneId).toInstant();
         Instant end = date.plusDays(1).atStartOfDay(zoneId).toInstant();
 
-        var list = orderRepository.aggregateDailyReport(start, end);
-        if (list.isEmpty()) {
-            return new DailyReportResult(BigDecimal.ZERO, 0L, 0L);
-        }
-        var agg = list.get(0);
-        return new DailyReportResult(agg.getTotalRevenue(), agg.getOrdersCount(), agg.getGuests());
+        return reportCache.get("daily", start, end, null, () -> {
+            if (hourAligned(start, end)) {
+                var list = hourlyRevenueRepository.sumRange(start, end);
+                if (list.isEmpty()) {
+                    return new DailyReportResult(BigDecimal.ZERO, 0L, 0L);
+                }
+                var agg = list.get(0);
+                return new DailyReportResult(agg.getTotalRevenue(), agg.getOrdersCount(), agg.getGuests());
+            }
+
+            var list = orderRepository.aggregateDailyReport(start, end);
+            if (list.isEmpty()) {
+                return new DailyReportResult(BigDecimal.ZERO, 0L, 0L);
+            }
+            var agg = list.get(0);
+            return new DailyReportResult(agg.getTotalRevenue(), agg.getOrdersCount(), agg.getGuests());
+        });
     }
 
     public SummaryReportResult range(LocalDate start, LocalDate end, ZoneId zoneId) {
@@ -42,44 +69,156 @@ public class ReportService {
         Instant s = start.atStartOfDay(zoneId).toInstant();
         Instant e = end.plusDays(1).atStartOfDay(zoneId).toInstant();
 
-        var list = orderRepository.aggregateRangeReport(s, e);
-        if (list.isEmpty()) {
-            return new SummaryReportResult(BigDecimal.ZERO, 0L, 0L);
-        }
-        var agg = list.get(0);
-        return new SummaryReportResult(agg.getTotalRevenue(), agg.getOrdersCount(), agg.getGuests());
+        return reportCache.get("range", s, e, null, () -> {
+            var list = hourAligned(s, e)
+                    ? hourlyRevenueRepository.sumRange(s, e)
+                    : orderRepository.aggregateRangeReport(s, e);
+            if (list.isEmpty()) {
+                return new SummaryReportResult(BigDecimal.ZERO, 0L, 0L);
+            }
+            var agg = list.get(0);
+            return new SummaryReportResult(agg.getTotalRevenue(), agg.getOrdersCount(), agg.getGuests());
+        });
     }
 
     public List<TopProductItem> topProducts(LocalDate start, LocalDate end, ZoneId zoneId, int limit) {
         Assert.notNull(start, "start date must not be null");
         Assert.notNull(end, "end date must not be null");
         Assert.isTrue(!end.isBefore(start), "end must be on/after start");
-        if (limit <= 0) limit = 10;
+        int n = limit <= 0 ? 10 : limit;
 
         Instant s = start.atStartOfDay(zoneId).toInstant();
         Instant e = end.plusDays(1).atStartOfDay(zoneId).toInstant();
 
-        var list = orderRepository.aggregateTopProducts(s, e, limit);
-        return list.stream()
-            .map(p -> new TopProductItem(p.getProductId(), p.getName(), p.getQuantity(), p.getRevenue()))
-            .toList();
-    }
-
-    // Maintenance: backfill paidAt for legacy orders (PAID but paidAt null)
-    public long backfillPaidAt() {
-        var list = orderRepository.findByPaymentStatusAndPaidAtIsNull(PaymentStatus.PAID);
-        long count = 0;
-        for (Order o : list) {
-            // Prefer updatedAt if available, else createdAt, else now
-            Instant when = o.getPaidAt();
-            if (when == null) {
-                when = o.getUpdatedAt() != null ? o.getUpdatedAt() : (o.getCreatedAt() != null ? o.getCreatedAt() : Instant.now());
-                o.setPaidAt(when);
-                orderRepository.save(o);
-                count++;
-            }
+        return reportCache.get("top-products", s, e, n, () -> {
+            var list = hourAligned(s, e)
+                    ? productHourlySalesRepository.topProducts(s, e, n)
+                    : orderRepository.aggregateTopProducts(s, e, n);
+            return list.stream()
+                .map(p -> new TopProductItem(p.getProductId(), p.getName(), p.getQuantity(), p.getRevenue()))
+                .toList();
+        });
+    }
+
+    // Cả trang báo cáo trong 1 aggregation ($match paidAt + $facet) và 1 round trip HTTP
+    public DashboardResult dashboard(LocalDate start, LocalDate end, ZoneId zoneId, int limit) {
+        Assert.notNull(start, "start date must not be null");
+        Assert.notNull(end, "end date must not be null");
+        Assert.isTrue(!end.isBefore(start), "end must be on/after start");
+        int n = limit <= 0 ? 10 : limit;
+
+        Instant s = start.atStartOfDay(zoneId).toInstant();
+        Instant e = end.plusDays(1).atStartOfDay(zoneId).toInstant();
+
+        // byPaymentStatus/byFulfillmentStatus đếm order tạo trong khoảng theo trạng thái HIỆN TẠI -> không bất biến
+        return reportCache.getLive("dashboard", s, e, List.of(zoneId.getId(), n), () -> {
+            Document doc = orderRepository.dashboard(s, e, zoneId.getId(), n);
+
+            List<Document> totalsList = doc.getList("totals", Document.class, List.of());
+            SummaryReportResult totals = totalsList.isEmpty()
+                    ? new SummaryReportResult(BigDecimal.ZERO, 0L, 0L)
+                    : new SummaryReportResult(decimal(totalsList.get(0).get("totalRevenue")),
+                            number(totalsList.get(0).get("ordersCount")), number(totalsList.get(0).get("guests")));
+
+            List<TopProductItem> top = doc.getList("topProducts", Document.class, List.of()).stream()
+                    .map(d -> {
+                        Document id = d.get("_id", Document.class);
+                        return new TopProductItem(id.getString("productId"), id.getString("name"),
+                                number(d.get("quantity")), decimal(d.get("revenue")));
+                    })
+                    .toList();
+
+            List<HourlyBucket> hourly = doc.getList("hourly", Document.class, List.of()).stream()
+                    .map(d -> new HourlyBucket(d.getDate("_id").toInstant(), decimal(d.get("revenue")),
+                            number(d.get("ordersCount"))))
+                    .toList();
+
+            return new DashboardResult(totals, top, hourly,
+                    countsByKey(doc.getList("byPaymentStatus", Document.class, List.of())),
+                    countsByKey(doc.getList("byFulfillmentStatus", Document.class, List.of())));
+        });
+    }
+
+    private static Map<String, Long> countsByKey(List<Document> rows) {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Document d : rows) {
+            Object key = d.get("_id");
+            out.put(key == null ? "UNKNOWN" : key.toString(), number(d.get("count")));
+        }
+        return out;
+    }
+
+    private static BigDecimal decimal(Object v) {
+        if (v instanceof Decimal128 d) return d.bigDecimalValue();
+        if (v instanceof Number num) return new BigDecimal(num.toString());
+        return BigDecimal.ZERO;
+    }
+
+    private static long number(Object v) {
+        return v instanceof Number num ? num.longValue() : 0L;
+    }
+
+    // bản xấp xỉ, nhanh: đếm trong RAM theo cửa sổ trượt, kèm sai số tối đa cho từng sản phẩm
+    public List<TrendingProductsTracker.TrendingItem> liveTopProducts(int windowMinutes, int limit) {
+        return trendingProductsTracker.top(windowMinutes, limit <= 0 ? 10 : limit, Instant.now());
+    }
+
+    // p50/p90/p99 theo stage; histogram lưu theo giờ UTC nên biên ngày được làm tròn xuống đầu giờ
+    public List<FulfillmentLatencyTracker.LatencyStats> latency(LocalDate start, LocalDate end, ZoneId zoneId,
+                                                                FulfillmentLatencyTracker.GroupBy groupBy) {
+        Assert.notNull(start, "start date must not be null");
+        Assert.notNull(end, "end date must not be null");
+        Assert.isTrue(!end.isBefore(start), "end must be on/after start");
+        Instant s = start.atStartOfDay(zoneId).toInstant().truncatedTo(ChronoUnit.HOURS);
+        Instant e = end.plusDays(1).atStartOfDay(zoneId).toInstant();
+        return fulfillmentLatencyTracker.query(s, e, groupBy);
+    }
+
+    // thời gian ngồi, số lượt/ngày, thời gian trống theo bàn - từ các interval table_occupancy
+    public TableOccupancyService.OccupancyReport occupancy(LocalDate start, LocalDate end, ZoneId zoneId) {
+        Assert.notNull(start, "start date must not be null");
+        Assert.notNull(end, "end date must not be null");
+        Assert.isTrue(!end.isBefore(start), "end must be on/after start");
+        return tableOccupancyService.report(start.atStartOfDay(zoneId).toInstant(),
+                end.plusDays(1).atStartOfDay(zoneId).toInstant());
+    }
+
+    // cắt lát tùy ý trên bảng cột trong RAM (chỉ khi app.analytics.columnar.enabled=true)
+    public List<PaidOrderColumnStore.SliceRow> slice(LocalDate start, LocalDate end, ZoneId zoneId,
+                                                     PaidOrderColumnStore.Dimension dimension,
+                                                     String tableId, String userId) {
+        Assert.notNull(start, "start date must not be null");
+        Assert.notNull(end, "end date must not be null");
+        Assert.isTrue(!end.isBefore(start), "end must be on/after start");
+        return requireColumnStore().slice(PaidOrderColumnStore.SliceQuery.builder()
+                .from(start.atStartOfDay(zoneId).toInstant())
+                .to(end.plusDays(1).atStartOfDay(zoneId).toInstant())
+                .zone(zoneId)
+                .dimension(dimension)
+                .tableId(tableId)
+                .userId(userId)
+                .build());
+    }
+
+    public PaidOrderColumnStore.Stats columnStoreStats() {
+        return requireColumnStore().stats();
+    }
+
+    private PaidOrderColumnStore requireColumnStore() {
+        PaidOrderColumnStore store = columnStore.getIfAvailable();
+        if (store == null) {
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Columnar analytics store is disabled");
         }
-        return count;
+        return store;
+    }
+
+    public Map<String, ReportCache.CacheStatsView> cacheStats() {
+        return reportCache.stats();
+    }
+
+    // rollup theo giờ UTC chỉ dùng được khi biên ngày rơi đúng đầu giờ (zone lệch 30/45 phút -> quét orders)
+    static boolean hourAligned(Instant start, Instant end) {
+        return start.getEpochSecond() % 3600 == 0 && end.getEpochSecond() % 3600 == 0;
     }
 
     @Data
@@ -106,4 +245,23 @@ public class ReportService {
         private long quantity;
         private BigDecimal revenue;
     }
-}
\ No newline at end of file
+
+    @Data
+    @AllArgsConstructor
+    public static class HourlyBucket {
+        private Instant hour;
+        private BigDecimal revenue;
+        private long ordersCount;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class DashboardResult {
+        private SummaryReportResult totals;
+        private List<TopProductItem> topProducts;
+        private List<HourlyBucket> hourly;
+        // 2 map trạng thái đếm theo order tạo trong khoảng (createdAt), phần còn lại theo paidAt
+        private Map<String, Long> byPaymentStatus;
+        private Map<String, Long> byFulfillmentStatus;
+    }
+}
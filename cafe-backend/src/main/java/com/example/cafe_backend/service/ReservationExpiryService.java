@@ -0,0 +1,125 @@
+package com.example.cafe_backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.example.cafe_backend.event.TableChangedEvent;
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.model.TableStatus;
+import com.example.cafe_backend.repository.CafeTableRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Tự trả bàn RESERVED khi hết thời gian giữ chỗ (khách không tới).
+// Mỗi bàn đang giữ có 1 timeout trong timing wheel, đặt/hủy theo TableChangedEvent; không quét collection định kỳ.
+// Khi tới hạn chỉ trả bàn nếu vẫn là đúng lượt giữ đó (status + holdExpiresAt khớp), nên bàn đã có khách không bị đụng.
+@Service
+public class ReservationExpiryService {
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpiryService.class);
+    private static final long TICK_MS = 1_000;
+    // 1024 slot x 1s ~ 17 phút mỗi vòng; giữ lâu hơn thì đếm thêm vòng
+    private static final int WHEEL_SIZE = 1024;
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(30);
+
+    private final CafeTableRepository tableRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher events;
+    private final Duration defaultHold;
+    private final Duration walkInHold;
+    private final HashedTimingWheel<String> wheel;
+    // tableId -> holdExpiresAt đang chờ (giá trị điều kiện khi trả bàn)
+    private final Map<String, Instant> holds = new ConcurrentHashMap<>();
+
+    public ReservationExpiryService(CafeTableRepository tableRepository, MongoTemplate mongoTemplate,
+                                    ApplicationEventPublisher events,
+                                    @Value("${app.reservations.hold-minutes:30}") long holdMinutes,
+                                    @Value("${app.seating.walk-in-hold-minutes:10}") long walkInHoldMinutes) {
+        this.tableRepository = tableRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.events = events;
+        this.defaultHold = Duration.ofMinutes(holdMinutes);
+        this.walkInHold = Duration.ofMinutes(walkInHoldMinutes);
+        this.wheel = new HashedTimingWheel<>("reservation-expiry", TICK_MS, WHEEL_SIZE, this::expire);
+    }
+
+    // Mongo lưu Date (ms): cắt sẵn để điều kiện holdExpiresAt khớp đúng giá trị đã ghi
+    public Instant holdUntil(Instant from, Integer holdMinutes) {
+        Duration hold = holdMinutes == null ? defaultHold : Duration.ofMinutes(holdMinutes);
+        return from.plus(hold).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    // bàn xếp cho khách vãng lai: giữ ngắn, khách ngồi xuống và gọi món thì order sẽ chuyển bàn sang OCCUPIED
+    public Instant walkInHoldUntil(Instant from, Integer holdMinutes) {
+        Duration hold = holdMinutes == null ? walkInHold : Duration.ofMinutes(holdMinutes);
+        return from.plus(hold).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    // dựng lại wheel từ Mongo; lượt giữ đã quá hạn lúc server tắt sẽ được trả ở tick đầu tiên
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        Query q = Query.query(Criteria.where("status").is(TableStatus.RESERVED).and("holdExpiresAt").ne(null));
+        q.fields().include("holdExpiresAt");
+        int n = 0;
+        for (CafeTable t : mongoTemplate.find(q, CafeTable.class)) {
+            hold(t.getId(), t.getHoldExpiresAt());
+            n++;
+        }
+        log.info("Reservation expiry wheel loaded {} hold(s)", n);
+    }
+
+    @EventListener
+    public void onTableChanged(TableChangedEvent e) {
+        CafeTable t = e.getTable();
+        if (t.getStatus() == TableStatus.RESERVED && t.getHoldExpiresAt() != null) {
+            hold(t.getId(), t.getHoldExpiresAt());
+        } else {
+            holds.remove(t.getId());
+            wheel.cancel(t.getId());
+        }
+    }
+
+    private void hold(String tableId, Instant holdExpiresAt) {
+        holds.put(tableId, holdExpiresAt);
+        wheel.schedule(tableId, holdExpiresAt);
+    }
+
+    private void expire(String tableId, Instant firedAt) {
+        Instant holdExpiresAt = holds.get(tableId);
+        if (holdExpiresAt == null) return;
+        CafeTable released;
+        try {
+            released = tableRepository.expireHold(tableId, holdExpiresAt, Instant.now());
+        } catch (RuntimeException e) {
+            // Mongo lỗi tạm thời: thử lại sau, lượt giữ vẫn nằm trong holds
+            log.warn("Could not expire hold on table {}: {}", tableId, e.getMessage());
+            wheel.schedule(tableId, Instant.now().plus(RETRY_AFTER));
+            return;
+        }
+        holds.remove(tableId, holdExpiresAt);
+        if (released == null) {
+            // đã có khách / đã được gia hạn hoặc release trong lúc chờ
+            return;
+        }
+        log.info("Reservation hold on table {} expired at {}, table released", released.getTableNumber(), holdExpiresAt);
+        events.publishEvent(new TableChangedEvent(released));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+    }
+}
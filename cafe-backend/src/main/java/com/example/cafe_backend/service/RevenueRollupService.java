@@ -0,0 +1,201 @@
+package com.example.cafe_backend.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.cafe_backend.event.OrderChangedEvent;
+import com.example.cafe_backend.model.HourlyRevenue;
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.OrderItem;
+import com.example.cafe_backend.model.ProductHourlySales;
+import com.example.cafe_backend.repository.HourlyRevenueRepository;
+import com.example.cafe_backend.repository.OrderMoneyFields;
+
+import lombok.RequiredArgsConstructor;
+
+// Maintains revenue_hourly / product_hourly: $inc on every payment, full rebuild from orders on demand
+// (and automatically after a failed $inc)
+@Service
+@RequiredArgsConstructor
+public class RevenueRollupService {
+    private static final Logger log = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final HourlyRevenueRepository hourlyRevenueRepository;
+    private final ReportCache reportCache;
+    private final OrderMoneyFields money;
+
+    // != null trong lúc rebuild: payment tới giữa chừng được xếp hàng rồi áp lên collection mới sau khi $out xong
+    // ($inc vào collection sắp bị $out thay thế sẽ mất, hoặc bị đếm 2 lần nếu order đã nằm trong aggregation)
+    private List<Order> pending;
+    private final ReadWriteLock pendingLock = new ReentrantReadWriteLock();
+    // 1 lần $inc thất bại -> rollup lệch: rebuild ở lần kiểm tra định kỳ tiếp theo
+    private volatile boolean dirty;
+
+    @EventListener
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onOrderChanged(OrderChangedEvent e) {
+        if (e.getType() != OrderChangedEvent.Type.PAID) return;
+        pendingLock.readLock().lock();
+        try {
+            if (pending != null) {
+                synchronized (pending) {
+                    pending.add(e.getOrder());
+                }
+                return;
+            }
+            recordOrMarkDirty(e.getOrder());
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rollups.dirty-check-ms:60000}", initialDelayString = "${app.rollups.dirty-check-ms:60000}")
+    public void rebuildIfDirty() {
+        if (!dirty) return;
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Rebuilding dirty revenue rollups failed; will retry", e);
+        }
+    }
+
+    private void recordOrMarkDirty(Order o) {
+        try {
+            record(o);
+        } catch (RuntimeException ex) {
+            // order đã thanh toán xong; rollup lệch thì rebuild định kỳ sẽ sửa lại
+            dirty = true;
+            log.error("Failed to update revenue rollup for order {}; rollups marked for rebuild", o.getId(), ex);
+        }
+    }
+
+    // lần đầu deploy: collection rollup rỗng -> dựng lại từ orders
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIfEmpty() {
+        try {
+            if (hourlyRevenueRepository.count() == 0) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            // không để lỗi dữ liệu cũ làm hỏng khởi động; báo cáo vẫn chạy thẳng trên orders
+            // rollup vẫn bị đánh dấu dirty nên rebuildIfDirty thử lại định kỳ
+            log.error("Initial revenue rollup rebuild failed; will retry", e);
+        }
+    }
+
+    public void record(Order o) {
+        if (o.getPaidAt() == null) return;
+        Instant hour = o.getPaidAt().truncatedTo(ChronoUnit.HOURS);
+        BigDecimal total = o.getTotalAmount() != null ? o.getTotalAmount() : BigDecimal.ZERO;
+
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(hour)),
+                new Update()
+                        .inc("revenue", new Decimal128(total))
+                        .inc("ordersCount", 1)
+                        .inc("guests", o.getGuestCount()),
+                HourlyRevenue.class);
+
+        if (o.getItems() == null || o.getItems().isEmpty()) return;
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductHourlySales.class);
+        for (OrderItem it : o.getItems()) {
+            BigDecimal line = it.getUnitPrice() == null ? BigDecimal.ZERO
+                    : it.getUnitPrice().multiply(BigDecimal.valueOf(it.getQuantity()));
+            ops.upsert(Query.query(Criteria.where("hour").is(hour).and("productId").is(it.getProductId())),
+                    new Update()
+                            .set("name", it.getName())
+                            .inc("quantity", it.getQuantity())
+                            .inc("revenue", new Decimal128(line)));
+        }
+        ops.execute();
+    }
+
+    // recompute both rollups from raw paid orders; $out swaps each collection atomically.
+    // Chỉ lấy order paidAt < cutoff; payment tới sau cutoff nằm trong hàng đợi và được áp lại sau cùng
+    public synchronized void rebuild() {
+        Instant cutoff;
+        pendingLock.writeLock().lock();
+        try {
+            // chờ các record() đang chạy xong rồi mới chốt mốc
+            pending = new ArrayList<>();
+            cutoff = Instant.now();
+            dirty = false;
+        } finally {
+            pendingLock.writeLock().unlock();
+        }
+        try {
+            rebuildBefore(cutoff);
+        } catch (RuntimeException e) {
+            dirty = true;
+            throw e;
+        } finally {
+            List<Order> queued;
+            pendingLock.writeLock().lock();
+            try {
+                queued = pending;
+                pending = null;
+            } finally {
+                pendingLock.writeLock().unlock();
+            }
+            // paidAt < cutoff đã nằm trong aggregation; số còn lại chưa được tính ở đâu cả
+            for (Order o : queued) {
+                if (o.getPaidAt() != null && !o.getPaidAt().isBefore(cutoff)) recordOrMarkDirty(o);
+            }
+        }
+        reportCache.clear();
+        log.info("Revenue rollups rebuilt");
+    }
+
+    private void rebuildBefore(Instant cutoff) {
+        Document match = new Document("$match", new Document("paymentStatus", "PAID")
+                .append("paidAt", new Document("$ne", null).append("$lt", Date.from(cutoff))));
+        Document hour = new Document("$dateTrunc", new Document("date", "$paidAt").append("unit", "hour"));
+
+        mongoTemplate.getCollection("orders").aggregate(List.of(
+                match,
+                new Document("$group", new Document("_id", hour)
+                        .append("revenue", new Document("$sum", money.decimal("$totalAmount")))
+                        .append("ordersCount", new Document("$sum", 1))
+                        .append("guests", new Document("$sum", "$guestCount"))),
+                new Document("$out", mongoTemplate.getCollectionName(HourlyRevenue.class))
+        )).allowDiskUse(true).toCollection();
+
+        mongoTemplate.getCollection("orders").aggregate(List.of(
+                match,
+                new Document("$unwind", "$items"),
+                new Document("$group", new Document("_id", new Document("hour", hour).append("productId", "$items.productId"))
+                        .append("name", new Document("$last", "$items.name"))
+                        .append("quantity", new Document("$sum", money.integer("$items.quantity")))
+                        .append("revenue", new Document("$sum", new Document("$multiply",
+                                List.of(money.decimal("$items.unitPrice"), money.decimal("$items.quantity")))))),
+                new Document("$project", new Document("_id", 0)
+                        .append("hour", "$_id.hour")
+                        .append("productId", "$_id.productId")
+                        .append("name", 1)
+                        .append("quantity", 1)
+                        .append("revenue", 1)),
+                new Document("$out", mongoTemplate.getCollectionName(ProductHourlySales.class))
+        )).allowDiskUse(true).toCollection();
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.cafe_backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.model.TableOccupancy;
+import com.example.cafe_backend.model.TableOccupancyHourly;
+import com.example.cafe_backend.model.TableStatus;
+import com.example.cafe_backend.repository.TableOccupancyHourlyRepository;
+import com.example.cafe_backend.repository.TableOccupancyRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+// Lịch sử lượt ngồi: mỗi lần bàn rời OCCUPIED ghi 1 interval (start, end, guests) vào table_occupancy và $inc
+// bộ đếm theo bàn/giờ (table_occupancy_hourly). Báo cáo cộng bộ đếm trong cửa sổ + lượt đang ngồi lấy từ FloorState;
+// chỉ cửa sổ lệch đầu giờ (zone +5:30...) mới quét các interval.
+@Service
+@RequiredArgsConstructor
+public class TableOccupancyService {
+    private static final Logger log = LoggerFactory.getLogger(TableOccupancyService.class);
+    private static final long HOUR_MS = 3_600_000L;
+
+    private final TableOccupancyRepository occupancyRepository;
+    private final TableOccupancyHourlyRepository hourlyRepository;
+    private final FloorState floorState;
+    private final MongoTemplate mongoTemplate;
+
+    // before = trạng thái bàn ngay trước khi rời OCCUPIED
+    public void recordClosed(CafeTable before, Instant end) {
+        if (before == null || before.getStatus() != TableStatus.OCCUPIED || before.getOccupiedAt() == null) return;
+        try {
+            TableOccupancy interval = occupancyRepository.insert(TableOccupancy.builder()
+                    .tableId(before.getId())
+                    .tableNumber(before.getTableNumber())
+                    .capacity(before.getCapacity())
+                    .orderId(before.getCurrentOrderId())
+                    .guests(before.getGuestCount())
+                    .start(before.getOccupiedAt())
+                    .end(end)
+                    .build());
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TableOccupancyHourly.class);
+            hourly(interval).forEach((hour, c) -> ops.upsert(
+                    Query.query(Criteria.where("hour").is(hour).and("tableId").is(interval.getTableId())),
+                    new Update()
+                            .inc("turns", c[0])
+                            .inc("durationMs", c[1])
+                            .inc("occupiedMs", c[2])
+                            .inc("guestMs", c[3])));
+            ops.execute();
+        } catch (RuntimeException ex) {
+            // bàn đã được trả xong; thiếu 1 interval chỉ làm lệch báo cáo (rebuildCounters sửa bộ đếm)
+            log.error("Failed to record occupancy interval for table {}", before.getId(), ex);
+        }
+    }
+
+    // lần đầu deploy: dựng bộ đếm từ các interval đã ghi trước đó
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIfEmpty() {
+        try {
+            if (hourlyRepository.count() == 0 && occupancyRepository.count() > 0) {
+                rebuildCounters();
+            }
+        } catch (RuntimeException e) {
+            log.error("Initial occupancy counter rebuild failed; occupancy reports will undercount until it is rebuilt", e);
+        }
+    }
+
+    // dựng lại table_occupancy_hourly từ table_occupancy (1 lượt quét, cộng dồn trong RAM theo bàn/giờ)
+    public void rebuildCounters() {
+        Map<String, Map<Instant, long[]>> acc = new HashMap<>();
+        try (Stream<TableOccupancy> all = mongoTemplate.stream(new Query(), TableOccupancy.class)) {
+            all.forEach(o -> {
+                Map<Instant, long[]> byHour = acc.computeIfAbsent(o.getTableId(), k -> new HashMap<>());
+                hourly(o).forEach((hour, c) -> {
+                    long[] sum = byHour.computeIfAbsent(hour, k -> new long[4]);
+                    for (int i = 0; i < 4; i++) sum[i] += c[i];
+                });
+            });
+        }
+        List<TableOccupancyHourly> rows = new ArrayList<>();
+        acc.forEach((tableId, byHour) -> byHour.forEach((hour, c) -> rows.add(TableOccupancyHourly.builder()
+                .tableId(tableId).hour(hour).turns(c[0]).durationMs(c[1]).occupiedMs(c[2]).guestMs(c[3]).build())));
+        hourlyRepository.deleteAll();
+        hourlyRepository.insert(rows);
+        log.info("Occupancy counters rebuilt: {} table-hours", rows.size());
+    }
+
+    // lượt tính vào giờ nó bắt đầu; thời gian có khách chia theo từng giờ mà lượt đi qua
+    private static Map<Instant, long[]> hourly(TableOccupancy o) {
+        Map<Instant, long[]> out = new LinkedHashMap<>();
+        if (o.getStart() == null || o.getEnd() == null || !o.getEnd().isAfter(o.getStart())) return out;
+        long guests = o.getGuests() == null ? 0 : o.getGuests();
+        long startMs = o.getStart().toEpochMilli();
+        long endMs = o.getEnd().toEpochMilli();
+        for (long h = Math.floorDiv(startMs, HOUR_MS) * HOUR_MS; h < endMs; h += HOUR_MS) {
+            long ms = Math.min(endMs, h + HOUR_MS) - Math.max(startMs, h);
+            boolean first = h <= startMs;
+            out.put(Instant.ofEpochMilli(h), new long[] { first ? 1 : 0, first ? endMs - startMs : 0, ms, ms * guests });
+        }
+        return out;
+    }
+
+    public OccupancyReport report(Instant start, Instant end) {
+        Instant now = Instant.now();
+        Instant effectiveEnd = end.isAfter(now) ? now : end;
+        long windowMs = Math.max(0, Duration.between(start, effectiveEnd).toMillis());
+        double days = Math.max(1.0, Duration.between(start, end).toHours() / 24.0);
+
+        // tableId -> {turns bắt đầu trong cửa sổ, tổng thời lượng của chúng, occupiedMs, guestMs}
+        Map<String, long[]> acc = windowMs == 0 ? Map.of()
+                : ReportService.hourAligned(start, end) ? fromCounters(start, end) : fromIntervals(start, effectiveEnd);
+
+        List<TableOccupancyStats> rows = new ArrayList<>();
+        long totalTurns = 0;
+        long totalOccupiedMs = 0;
+        long totalCapacity = 0;
+        long totalGuestMs = 0;
+        for (CafeTable t : floorState.current().all()) {
+            long[] a = acc.getOrDefault(t.getId(), new long[4]);
+            long occupiedMs = a[2];
+            long guestMs = a[3];
+            long turns = a[0];
+            // lượt đang ngồi tính tới hiện tại (chưa có trong bộ đếm)
+            if (t.getStatus() == TableStatus.OCCUPIED && t.getOccupiedAt() != null
+                    && t.getOccupiedAt().isBefore(effectiveEnd)) {
+                Instant from = t.getOccupiedAt().isAfter(start) ? t.getOccupiedAt() : start;
+                long ms = Duration.between(from, effectiveEnd).toMillis();
+                occupiedMs += ms;
+                guestMs += ms * (t.getGuestCount() == null ? 0 : t.getGuestCount());
+                if (!t.getOccupiedAt().isBefore(start)) turns++;
+            }
+            rows.add(new TableOccupancyStats(t.getId(), t.getTableNumber(), t.getCapacity(), turns,
+                    round(turns / days),
+                    a[0] == 0 ? 0 : round(a[1] / 60_000.0 / a[0]),
+                    round(occupiedMs / 60_000.0),
+                    round(Math.max(0, windowMs - occupiedMs) / 60_000.0),
+                    windowMs == 0 ? 0 : round((double) occupiedMs / windowMs),
+                    windowMs == 0 || t.getCapacity() == 0 ? 0 : round((double) guestMs / ((double) windowMs * t.getCapacity()))));
+            totalTurns += turns;
+            totalOccupiedMs += occupiedMs;
+            totalCapacity += t.getCapacity();
+            totalGuestMs += guestMs;
+        }
+        double tableWindowMs = (double) windowMs * rows.size();
+        return new OccupancyReport(start, end, totalTurns, round(totalTurns / days),
+                tableWindowMs == 0 ? 0 : round(totalOccupiedMs / tableWindowMs),
+                windowMs == 0 || totalCapacity == 0 ? 0 : round(totalGuestMs / ((double) windowMs * totalCapacity)),
+                rows);
+    }
+
+    // chi phí theo số bàn x số giờ của cửa sổ, không theo số lượt
+    private Map<String, long[]> fromCounters(Instant start, Instant end) {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("hour", new Document("$gte", Date.from(start)).append("$lt", Date.from(end)))),
+                new Document("$group", new Document("_id", "$tableId")
+                        .append("turns", new Document("$sum", "$turns"))
+                        .append("durationMs", new Document("$sum", "$durationMs"))
+                        .append("occupiedMs", new Document("$sum", "$occupiedMs"))
+                        .append("guestMs", new Document("$sum", "$guestMs"))));
+        Map<String, long[]> acc = new HashMap<>();
+        for (Document d : mongoTemplate.getCollection(mongoTemplate.getCollectionName(TableOccupancyHourly.class)).aggregate(pipeline)) {
+            acc.put(d.getString("_id"), new long[] {
+                    number(d.get("turns")), number(d.get("durationMs")), number(d.get("occupiedMs")), number(d.get("guestMs")) });
+        }
+        return acc;
+    }
+
+    // cửa sổ không chia hết theo giờ UTC: cắt trực tiếp các interval giao cửa sổ
+    private Map<String, long[]> fromIntervals(Instant start, Instant effectiveEnd) {
+        Date s = Date.from(start);
+        Date e = Date.from(effectiveEnd);
+        Document started = new Document("$gte", List.of("$start", s));
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("start", new Document("$lt", e))
+                        .append("end", new Document("$gt", s))),
+                new Document("$project", new Document("tableId", 1)
+                        .append("started", new Document("$cond", List.of(started, 1, 0)))
+                        .append("full", new Document("$cond", List.of(started,
+                                new Document("$subtract", List.of("$end", "$start")), 0)))
+                        .append("guests", new Document("$ifNull", List.of("$guests", 0)))
+                        .append("clipped", new Document("$subtract", List.of(
+                                new Document("$min", List.of("$end", e)),
+                                new Document("$max", List.of("$start", s)))))),
+                new Document("$group", new Document("_id", "$tableId")
+                        .append("turns", new Document("$sum", "$started"))
+                        .append("fullMs", new Document("$sum", "$full"))
+                        .append("occupiedMs", new Document("$sum", "$clipped"))
+                        .append("guestMs", new Document("$sum", new Document("$multiply", List.of("$guests", "$clipped"))))));
+        Map<String, long[]> acc = new HashMap<>();
+        for (Document d : mongoTemplate.getCollection(mongoTemplate.getCollectionName(TableOccupancy.class)).aggregate(pipeline)) {
+            acc.put(d.getString("_id"), new long[] {
+                    number(d.get("turns")), number(d.get("fullMs")), number(d.get("occupiedMs")), number(d.get("guestMs")) });
+        }
+        return acc;
+    }
+
+    private static long number(Object v) {
+        return v instanceof Number num ? num.longValue() : 0L;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class OccupancyReport {
+        private Instant start;
+        private Instant end;
+        private long turns;
+        private double turnsPerDay;
+        private double occupancyRate;     // thời gian có khách / thời gian cửa sổ (mọi bàn)
+        private double seatUtilization;   // ghế có người / tổng ghế, bình quân theo thời gian
+        private List<TableOccupancyStats> tables;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class TableOccupancyStats {
+        private String tableId;
+        private int tableNumber;
+        private int capacity;
+        private long turns;                 // lượt bắt đầu trong cửa sổ (kể cả lượt đang ngồi)
+        private double turnsPerDay;
+        private double avgOccupiedMinutes;  // chỉ tính lượt đã kết thúc
+        private double occupiedMinutes;
+        private double idleMinutes;
+        private double occupancyRate;
+        private double seatUtilization;
+    }
+}
@@ -2,7 +2,9 @@ package com.example.cafe_backend.service;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -10,6 +12,8 @@ import org.springframework.web.server.ResponseStatusException;
 
 import com.example.cafe_backend.dto.CreateTableRequest;
 import com.example.cafe_backend.dto.ReserveTableRequest;
+import com.example.cafe_backend.event.TableChangedEvent;
+import com.example.cafe_backend.model.Booking;
 import com.example.cafe_backend.model.CafeTable;
 import com.example.cafe_backend.model.TableStatus;
 import com.example.cafe_backend.repository.CafeTableRepository;
@@ -22,6 +26,12 @@ import static org.springframework.http.HttpStatus.*;
 @RequiredArgsConstructor
 public class TableService {
     private final CafeTableRepository tableRepository;
+    private final TableOccupancyService occupancyService;
+    private final FloorState floorState;
+    private final ReservationExpiryService expiryService;
+    private final TableWriteRetrier retrier;
+    private final BookingService bookingService;
+    private final ApplicationEventPublisher events;
 
     public CafeTable create(CreateTableRequest req) {
         if (tableRepository.existsByTableNumber(req.getTableNumber())) {
@@ -33,18 +43,16 @@ public class TableService {
                 .note(req.getNote())
                 .status(TableStatus.AVAILABLE)
                 .build();
-        return tableRepository.save(t);
+        return publish(tableRepository.save(t));
     }
 
+    // đọc từ FloorState (RAM), không query Mongo
     public List<CafeTable> listAll() {
-        return tableRepository.findAll();
+        return floorState.current().all();
     }
 
     public List<CafeTable> listByReservedUser(String userId) {
-        // tạm thời filter ở memory (Mongo repo chưa có method); dataset thường nhỏ
-        return tableRepository.findAll().stream()
-                .filter(t -> userId != null && userId.equals(t.getReservedByUserId()))
-                .toList();
+        return floorState.current().reservedBy(userId);
     }
 
     public CafeTable getById(String id) {
@@ -52,38 +60,100 @@ public class TableService {
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Table not found"));
     }
 
+    // các thao tác đọc - sửa - save dưới đây chạy lại từ đầu nếu version đã đổi (xem TableWriteRetrier);
+    // lượt ngồi chỉ được ghi sau khi save thành công để lần thử lại không ghi trùng
     public CafeTable updateStatus(String id, TableStatus status) {
-        CafeTable t = getById(id);
-        t.setStatus(status);
-        t.setUpdatedAt(Instant.now());
-        if (status != TableStatus.OCCUPIED) {
-            t.setCurrentOrderId(null);
-        }
-        return tableRepository.save(t);
+        return retrier.run(id, () -> {
+            CafeTable t = getById(id);
+            CafeTable before = t.toBuilder().build();
+            Instant now = Instant.now();
+            if (status == TableStatus.OCCUPIED && t.getStatus() != TableStatus.OCCUPIED) {
+                t.setOccupiedAt(now);
+            }
+            t.setStatus(status);
+            t.setUpdatedAt(now);
+            // đổi trạng thái tay: bỏ hạn giữ chỗ (RESERVED do admin đặt thì giữ tới khi release)
+            t.setHoldExpiresAt(null);
+            if (status != TableStatus.OCCUPIED) {
+                t.setCurrentOrderId(null);
+                t.setOccupiedAt(null);
+                t.setGuestCount(null);
+            }
+            CafeTable saved = tableRepository.save(t);
+            if (before.getStatus() == TableStatus.OCCUPIED && status != TableStatus.OCCUPIED) {
+                occupancyService.recordClosed(before, now);
+            }
+            return publish(saved);
+        });
     }
 
     public CafeTable reserve(String id, ReserveTableRequest req) {
-        CafeTable t = getById(id);
-        if (t.getStatus() != TableStatus.AVAILABLE) {
-            throw new ResponseStatusException(BAD_REQUEST, "Table is not available");
-        }
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String reservedBy = auth != null ? auth.getName() : null;
-        t.setStatus(TableStatus.RESERVED);
-        t.setNote(req.getNote());
-        t.setReservedByUserId(reservedBy);
-        t.setReservedAt(Instant.now());
-        t.setUpdatedAt(Instant.now());
-        return tableRepository.save(t);
+        return retrier.run(id, () -> {
+            CafeTable t = getById(id);
+            if (t.getStatus() != TableStatus.AVAILABLE) {
+                throw new ResponseStatusException(BAD_REQUEST, "Table is not available");
+            }
+            Instant now = Instant.now();
+            t.setStatus(TableStatus.RESERVED);
+            t.setNote(req.getNote());
+            t.setReservedByUserId(reservedBy);
+            t.setSeatedBy(null);
+            t.setReservedAt(now);
+            t.setHoldExpiresAt(expiryService.holdUntil(now, req.getHoldMinutes()));
+            t.setUpdatedAt(now);
+            return publish(tableRepository.save(t));
+        });
+    }
+
+    // xếp bàn cho khách vãng lai: bàn trống nhỏ nhất đủ chỗ, giữ bằng update có điều kiện.
+    // Host khác vừa lấy mất bàn đó (snapshot chưa kịp cập nhật) thì thử bàn kế tiếp.
+    // Bàn sắp tới giờ booking (trong 1 lượt ngồi kể từ bây giờ) thì bỏ qua để không lấn giờ đã đặt.
+    public CafeTable seatWalkIn(int guests, Integer holdMinutes) {
+        if (guests < 1) {
+            throw new ResponseStatusException(BAD_REQUEST, "guests must be >= 1");
+        }
+        if (holdMinutes != null && (holdMinutes < 1 || holdMinutes > 240)) {
+            throw new ResponseStatusException(BAD_REQUEST, "holdMinutes must be between 1 and 240");
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String host = auth != null ? auth.getName() : null;
+        Map<String, Booking> booked = bookingService.blocking(Instant.now(), null);
+        for (CafeTable candidate : floorState.current().freeFitting(guests)) {
+            if (booked.containsKey(candidate.getId())) continue;
+            Instant now = Instant.now();
+            CafeTable claimed = tableRepository.claimForSeating(candidate.getId(), guests, host,
+                    expiryService.walkInHoldUntil(now, holdMinutes), now);
+            if (claimed != null) {
+                return publish(claimed);
+            }
+        }
+        throw new ResponseStatusException(CONFLICT, "No available table for " + guests + " guests");
     }
 
     public void release(String id) {
-        CafeTable t = getById(id);
-        t.setStatus(TableStatus.AVAILABLE);
-        t.setCurrentOrderId(null);
-        t.setReservedByUserId(null);
-        t.setReservedAt(null);
-        t.setUpdatedAt(Instant.now());
-        tableRepository.save(t);
+        retrier.run(id, () -> {
+            CafeTable t = getById(id);
+            CafeTable before = t.toBuilder().build();
+            Instant now = Instant.now();
+            t.setStatus(TableStatus.AVAILABLE);
+            t.setCurrentOrderId(null);
+            t.setOccupiedAt(null);
+            t.setGuestCount(null);
+            t.setReservedByUserId(null);
+            t.setReservedAt(null);
+            t.setHoldExpiresAt(null);
+            t.setSeatedBy(null);
+            t.setUpdatedAt(now);
+            CafeTable saved = tableRepository.save(t);
+            occupancyService.recordClosed(before, now);
+            return publish(saved);
+        });
+    }
+
+    private CafeTable publish(CafeTable t) {
+        events.publishEvent(new TableChangedEvent(t));
+        return t;
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.example.cafe_backend.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.model.CafeTable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+// Ghi CafeTable theo kiểu đọc - sửa - save(@Version): đụng nhau thì đọc lại và làm lại, backoff ngẫu nhiên (full jitter)
+// để các request đang tranh cùng 1 bàn không thử lại cùng lúc. Đếm xung đột theo bàn để biết bàn nào "nóng".
+@Component
+@RequiredArgsConstructor
+public class TableWriteRetrier {
+    private static final Logger log = LoggerFactory.getLogger(TableWriteRetrier.class);
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 200;
+
+    private final FloorState floorState;
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    // attempt phải tự đọc lại bàn mỗi lần chạy; hết lượt thử thì ném lại lỗi cuối (-> 409)
+    public <T> T run(String tableId, Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                T result = attempt.get();
+                if (i > 1) counters(tableId).succeededAfterRetry.increment();
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                Counters c = counters(tableId);
+                c.conflicts.increment();
+                c.lastConflictAt = Instant.now();
+                if (i >= MAX_ATTEMPTS) {
+                    c.exhausted.increment();
+                    log.warn("Table {} still conflicting after {} attempts", tableId, i);
+                    throw e;
+                }
+                c.retries.increment();
+                backoff(i);
+            }
+        }
+    }
+
+    public List<TableContention> contention() {
+        List<TableContention> out = new ArrayList<>();
+        FloorState.Snapshot floor = floorState.current();
+        for (Map.Entry<String, Counters> e : counters.entrySet()) {
+            CafeTable t = floor.get(e.getKey());
+            Counters c = e.getValue();
+            out.add(new TableContention(e.getKey(), t == null ? null : t.getTableNumber(), c.conflicts.sum(),
+                    c.retries.sum(), c.succeededAfterRetry.sum(), c.exhausted.sum(), c.lastConflictAt));
+        }
+        out.sort(Comparator.comparingLong(TableContention::getConflicts).reversed());
+        return out;
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+
+    private Counters counters(String tableId) {
+        return counters.computeIfAbsent(tableId == null ? "" : tableId, k -> new Counters());
+    }
+
+    // ngủ ngẫu nhiên trong [0, min(max, base * 2^(attempt-1))]
+    private static void backoff(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OptimisticLockingFailureException("Interrupted while retrying table write", e);
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder succeededAfterRetry = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+        volatile Instant lastConflictAt;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class TableContention {
+        private String tableId;
+        private Integer tableNumber;
+        private long conflicts;           // số lần save bị từ chối vì version cũ
+        private long retries;
+        private long succeededAfterRetry; // request thành công nhờ thử lại
+        private long exhausted;           // hết lượt thử, client nhận 409
+        private Instant lastConflictAt;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.cafe_backend.service;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Chuẩn hóa chuỗi tiếng Việt cho so khớp tên sản phẩm
+public final class TextNormalizer {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private TextNormalizer() {
+    }
+
+    // khóa unique của tên: không phân biệt hoa/thường và khoảng trắng, NHƯNG giữ dấu
+    // ("Cà phê" và "Cá phê" là 2 món khác nhau)
+    public static String normalizedName(String s) {
+        if (s == null) return null;
+        String n = Normalizer.normalize(s, Normalizer.Form.NFC).toLowerCase(Locale.ROOT).trim();
+        return SPACES.matcher(n).replaceAll(" ");
+    }
+
+    // khóa tìm kiếm: bỏ dấu (kể cả đ -> d), chữ thường, chỉ còn chữ/số -> "ca phe sua da"
+    public static String fold(String s) {
+        if (s == null) return "";
+        String n = Normalizer.normalize(s, Normalizer.Form.NFD);
+        n = MARKS.matcher(n).replaceAll("");
+        n = n.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+        return NON_WORD.matcher(n).replaceAll(" ").trim();
+    }
+
+    public static List<String> tokens(String folded) {
+        if (folded == null || folded.isEmpty()) return List.of();
+        return Arrays.asList(folded.split(" "));
+    }
+}
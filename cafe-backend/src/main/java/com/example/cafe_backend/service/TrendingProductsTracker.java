@@ -0,0 +1,172 @@
+package com.example.cafe_backend.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.cafe_backend.event.OrderChangedEvent;
+import com.example.cafe_backend.model.OrderItem;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// "Đang bán chạy" trong 15/60 phút gần nhất, không đụng Mongo.
+// Ring of one-minute slices, each a Space-Saving sketch with at most CAPACITY counters,
+// so memory is fixed (SLICES * CAPACITY) and old minutes decay out as the ring rotates.
+@Component
+public class TrendingProductsTracker {
+    public static final int MAX_WINDOW_MINUTES = 60;
+    private static final int SLICES = MAX_WINDOW_MINUTES;
+    private static final int CAPACITY = 64;
+    private static final long SLICE_MS = 60_000L;
+
+    private final Slice[] ring = new Slice[SLICES];
+
+    public TrendingProductsTracker() {
+        for (int i = 0; i < SLICES; i++) ring[i] = new Slice();
+    }
+
+    // đơn vừa được đặt = tín hiệu sớm nhất của "đang bán"; đơn bị hủy thì trừ lại ở đúng phút đã cộng
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent e) {
+        boolean created = e.getType() == OrderChangedEvent.Type.CREATED;
+        if (!created && e.getType() != OrderChangedEvent.Type.CANCELLED || e.getOrder().getItems() == null) return;
+        Instant at = e.getOrder().getCreatedAt() != null ? e.getOrder().getCreatedAt() : Instant.now();
+        for (OrderItem it : e.getOrder().getItems()) {
+            if (created) {
+                record(it.getProductId(), it.getName(), it.getQuantity(), at);
+            } else {
+                retract(it.getProductId(), it.getQuantity(), at);
+            }
+        }
+    }
+
+    public synchronized void record(String productId, String name, long quantity, Instant at) {
+        if (productId == null || quantity <= 0) return;
+        sliceFor(at.toEpochMilli() / SLICE_MS).offer(productId, name, quantity);
+    }
+
+    // phút đó đã trôi khỏi ring thì không còn gì để trừ; counter đã bị Space-Saving đẩy ra thì cận trên vẫn đúng
+    public synchronized void retract(String productId, long quantity, Instant at) {
+        if (productId == null || quantity <= 0) return;
+        long minute = at.toEpochMilli() / SLICE_MS;
+        Slice s = ring[Math.floorMod(minute, SLICES)];
+        if (s.minute == minute) s.retract(productId, quantity);
+    }
+
+    // estimate is an upper bound on the true quantity; the true value is >= estimate - maxError
+    public synchronized List<TrendingItem> top(int windowMinutes, int limit, Instant now) {
+        int window = Math.max(1, Math.min(windowMinutes, MAX_WINDOW_MINUTES));
+        long current = now.toEpochMilli() / SLICE_MS;
+
+        Map<String, long[]> bounds = new HashMap<>(); // productId -> {upper, lower}
+        Map<String, String> names = new HashMap<>();
+        List<Slice> slices = new ArrayList<>();
+        for (long m = current - window + 1; m <= current; m++) {
+            Slice s = ring[Math.floorMod(m, SLICES)];
+            if (s.minute != m) continue;
+            slices.add(s);
+            for (Counter c : s.counters.values()) {
+                long[] b = bounds.computeIfAbsent(c.productId, k -> new long[2]);
+                b[0] += c.count;
+                b[1] += c.count - c.error;
+                names.put(c.productId, c.name);
+            }
+        }
+        // sản phẩm không có trong 1 slice đầy vẫn có thể đã bán tới min(count) của slice đó
+        for (Slice s : slices) {
+            if (s.counters.size() < CAPACITY) continue;
+            long min = s.minCount();
+            for (Map.Entry<String, long[]> e : bounds.entrySet()) {
+                if (!s.counters.containsKey(e.getKey())) e.getValue()[0] += min;
+            }
+        }
+
+        return bounds.entrySet().stream()
+                .map(e -> new TrendingItem(e.getKey(), names.get(e.getKey()), e.getValue()[0],
+                        e.getValue()[0] - e.getValue()[1]))
+                .sorted(Comparator.comparingLong(TrendingItem::getQuantity).reversed())
+                .limit(Math.max(1, limit))
+                .toList();
+    }
+
+    private Slice sliceFor(long minute) {
+        Slice s = ring[Math.floorMod(minute, SLICES)];
+        if (s.minute != minute) {
+            s.reset(minute);
+        }
+        return s;
+    }
+
+    private static final class Slice {
+        private long minute = Long.MIN_VALUE;
+        private final Map<String, Counter> counters = new HashMap<>(CAPACITY * 2);
+
+        void reset(long minute) {
+            this.minute = minute;
+            counters.clear();
+        }
+
+        void offer(String productId, String name, long weight) {
+            Counter c = counters.get(productId);
+            if (c != null) {
+                c.count += weight;
+                return;
+            }
+            if (counters.size() < CAPACITY) {
+                counters.put(productId, new Counter(productId, name, weight, 0));
+                return;
+            }
+            // Space-Saving: thay counter nhỏ nhất, kế thừa count của nó làm sai số
+            Counter min = null;
+            for (Counter x : counters.values()) {
+                if (min == null || x.count < min.count) min = x;
+            }
+            counters.remove(min.productId);
+            counters.put(productId, new Counter(productId, name, min.count + weight, min.count));
+        }
+
+        // số thật giảm đúng bằng weight nên [count - error, count] vẫn chứa nó
+        void retract(String productId, long weight) {
+            Counter c = counters.get(productId);
+            if (c == null) return;
+            c.count -= weight;
+            if (c.count <= 0) counters.remove(productId);
+        }
+
+        long minCount() {
+            long min = Long.MAX_VALUE;
+            for (Counter x : counters.values()) min = Math.min(min, x.count);
+            return min == Long.MAX_VALUE ? 0 : min;
+        }
+    }
+
+    private static final class Counter {
+        final String productId;
+        final String name;
+        long count;
+        final long error;
+
+        Counter(String productId, String name, long count, long error) {
+            this.productId = productId;
+            this.name = name;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class TrendingItem {
+        private String productId;
+        private String name;
+        private long quantity;  // ước lượng (cận trên)
+        private long maxError;  // số lượng thật nằm trong [quantity - maxError, quantity]
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.cafe_backend;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import com.example.cafe_backend.config.MongoConfig;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+// Mongo giả trong RAM (mongo-java-server) cho test repository/service: cùng converter (BigDecimal -> Decimal128)
+// như app thật, mỗi instance 1 database riêng
+public final class InMemoryMongo implements AutoCloseable {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final MongoServer server;
+    private final MongoClient client;
+    private final MongoTemplate template;
+
+    public InMemoryMongo() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create("mongodb://" + toHostPort(server.bind()));
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(client, "test" + DATABASES.incrementAndGet());
+        MongoMappingContext context = new MongoMappingContext();
+        var conversions = new MongoConfig().mongoCustomConversions();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(factory), context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        template = new MongoTemplate(factory, converter);
+    }
+
+    public MongoTemplate template() {
+        return template;
+    }
+
+    // repository Spring Data như lúc chạy app; fragments = các *RepositoryCustomImpl
+    public <T> T repository(Class<T> type, Object... fragments) {
+        return new MongoRepositoryFactory(template).getRepository(type, RepositoryFragments.just(fragments));
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    private static String toHostPort(java.net.InetSocketAddress a) {
+        return a.getHostString() + ":" + a.getPort();
+    }
+}
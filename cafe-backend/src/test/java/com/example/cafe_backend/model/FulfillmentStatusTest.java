@@ -0,0 +1,33 @@
+package com.example.cafe_backend.model;
+
+import static com.example.cafe_backend.model.FulfillmentStatus.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Test;
+
+class FulfillmentStatusTest {
+
+    @Test
+    void onlyForwardMovesAreAllowedAndStepsMayBeSkipped() {
+        assertEquals(EnumSet.noneOf(FulfillmentStatus.class), PENDING.allowedFrom());
+        assertEquals(EnumSet.of(PENDING), CONFIRMED.allowedFrom());
+        assertEquals(EnumSet.of(PENDING, CONFIRMED), PREPARING.allowedFrom());
+        assertEquals(EnumSet.of(PENDING, CONFIRMED, PREPARING), READY.allowedFrom());
+        assertEquals(EnumSet.of(PENDING, CONFIRMED, PREPARING, READY), SERVED.allowedFrom());
+    }
+
+    @Test
+    void cancelAllowedFromEveryStateExceptCancelled() {
+        assertEquals(EnumSet.of(PENDING, CONFIRMED, PREPARING, READY, SERVED), CANCELLED.allowedFrom());
+    }
+
+    @Test
+    void nothingLeavesCancelled() {
+        for (FulfillmentStatus s : values()) {
+            assertFalse(s.allowedFrom().contains(CANCELLED), s + " reachable from CANCELLED");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.cafe_backend.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.cafe_backend.InMemoryMongo;
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.model.TableStatus;
+
+class CafeTableRepositoryTest {
+    private InMemoryMongo mongo;
+    private CafeTableRepository tables;
+    private int nextNumber = 1;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        tables = mongo.repository(CafeTableRepository.class, new CafeTableRepositoryCustomImpl(mongo.template()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    // nhiều request cùng giành 1 bàn: đúng 1 claim thắng, bàn trỏ đến order của người thắng
+    @Test
+    void concurrentClaimsHaveExactlyOneWinner() throws Exception {
+        CafeTable t = table(4, TableStatus.AVAILABLE);
+        int n = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CafeTable>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < n; i++) {
+                String orderId = "order-" + i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return tables.claimForOrder(t.getId(), orderId, 2, false);
+                }));
+            }
+            start.countDown();
+
+            List<CafeTable> winners = new ArrayList<>();
+            for (Future<CafeTable> f : results) {
+                CafeTable won = f.get();
+                if (won != null) winners.add(won);
+            }
+            assertEquals(1, winners.size());
+            CafeTable stored = tables.findById(t.getId()).orElseThrow();
+            assertEquals(TableStatus.OCCUPIED, stored.getStatus());
+            assertEquals(winners.get(0).getCurrentOrderId(), stored.getCurrentOrderId());
+            assertEquals(t.getVersion() + 1, stored.getVersion());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void claimIsRejectedOverCapacityOrWhenOccupied() {
+        CafeTable t = table(2, TableStatus.AVAILABLE);
+
+        assertNull(tables.claimForOrder(t.getId(), "big-party", 3, false));
+        assertEquals(TableStatus.AVAILABLE, tables.findById(t.getId()).orElseThrow().getStatus());
+
+        assertNotNull(tables.claimForOrder(t.getId(), "first", 2, false));
+        assertNull(tables.claimForOrder(t.getId(), "second", 1, false));
+        assertEquals("first", tables.findById(t.getId()).orElseThrow().getCurrentOrderId());
+    }
+
+    // bàn bị chặn bởi booking: chỉ nhận order khi nhân viên đã giữ bàn (RESERVED)
+    @Test
+    void heldOnlyClaimRequiresReservedTable() {
+        CafeTable available = table(4, TableStatus.AVAILABLE);
+        CafeTable held = table(4, TableStatus.RESERVED);
+
+        assertNull(tables.claimForOrder(available.getId(), "o1", 2, true));
+
+        CafeTable claimed = tables.claimForOrder(held.getId(), "o2", 2, true);
+        assertNotNull(claimed);
+        assertEquals(TableStatus.OCCUPIED, claimed.getStatus());
+        assertNull(claimed.getHoldExpiresAt());
+    }
+
+    // release với order khác (đã bị order mới chiếm lại) không được đụng vào bàn
+    @Test
+    void releaseWithStaleOrderIdLeavesTableAlone() {
+        CafeTable t = table(4, TableStatus.AVAILABLE);
+        tables.claimForOrder(t.getId(), "current", 2, false);
+
+        assertNull(tables.releaseOrder(t.getId(), "stale", Instant.now()));
+
+        CafeTable stored = tables.findById(t.getId()).orElseThrow();
+        assertEquals(TableStatus.OCCUPIED, stored.getStatus());
+        assertEquals("current", stored.getCurrentOrderId());
+        assertEquals(2, stored.getGuestCount());
+    }
+
+    @Test
+    void releaseReturnsTheOccupiedDocumentAndFreesTheTable() {
+        CafeTable t = table(4, TableStatus.AVAILABLE);
+        tables.claimForOrder(t.getId(), "current", 3, false);
+
+        CafeTable before = tables.releaseOrder(t.getId(), "current", Instant.now());
+
+        assertNotNull(before);
+        assertEquals(TableStatus.OCCUPIED, before.getStatus());
+        assertEquals(3, before.getGuestCount());
+        assertNotNull(before.getOccupiedAt());
+        CafeTable stored = tables.findById(t.getId()).orElseThrow();
+        assertEquals(TableStatus.AVAILABLE, stored.getStatus());
+        assertNull(stored.getCurrentOrderId());
+        assertNull(stored.getOccupiedAt());
+        assertNull(stored.getGuestCount());
+        // release lần 2 (retry) không làm gì
+        assertNull(tables.releaseOrder(t.getId(), "current", Instant.now()));
+    }
+
+    private CafeTable table(int capacity, TableStatus status) {
+        return tables.insert(CafeTable.builder()
+                .tableNumber(nextNumber++)
+                .capacity(capacity)
+                .status(status)
+                .version(0L)
+                .build());
+    }
+}
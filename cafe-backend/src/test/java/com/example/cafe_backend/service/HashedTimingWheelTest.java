@@ -0,0 +1,113 @@
+package com.example.cafe_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HashedTimingWheelTest {
+    private static final long TICK_MS = 10;
+
+    private final BlockingQueue<Fired> fired = new LinkedBlockingQueue<>();
+    private HashedTimingWheel<String> wheel;
+
+    @AfterEach
+    void stop() {
+        if (wheel != null) wheel.stop();
+    }
+
+    @Test
+    void sizeMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<String>("test-wheel", TICK_MS, 6, (k, at) -> {}));
+    }
+
+    @Test
+    void firesOnceNotBeforeTheDeadline() throws InterruptedException {
+        wheel = newWheel(8);
+        Instant deadline = Instant.now().plusMillis(50);
+        wheel.schedule("t1", deadline);
+
+        Fired f = fired.poll(2, TimeUnit.SECONDS);
+        assertNotNull(f);
+        assertEquals("t1", f.key);
+        assertEquals(deadline, f.deadline);
+        assertFalse(f.firedAt.isBefore(deadline), "fired at " + f.firedAt + " before " + deadline);
+        assertEquals(0, wheel.size());
+        assertNull(fired.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    // deadline xa hơn 1 vòng bánh xe (4 slot * 10ms) phải chờ đủ số vòng chứ không bắn ở lần đầu quay qua slot
+    @Test
+    void deadlinesBeyondOneRevolutionWaitForTheirRounds() throws InterruptedException {
+        wheel = newWheel(4);
+        Instant deadline = Instant.now().plusMillis(250);
+        wheel.schedule("far", deadline);
+
+        Fired f = fired.poll(2, TimeUnit.SECONDS);
+        assertNotNull(f);
+        assertFalse(f.firedAt.isBefore(deadline), "fired at " + f.firedAt + " before " + deadline);
+    }
+
+    @Test
+    void pastDeadlineFiresOnTheNextTick() throws InterruptedException {
+        wheel = newWheel(8);
+        wheel.schedule("late", Instant.now().minusSeconds(60));
+
+        assertNotNull(fired.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws InterruptedException {
+        wheel = newWheel(8);
+        wheel.schedule("t1", Instant.now().plusMillis(50));
+
+        assertTrue(wheel.cancel("t1"));
+        assertFalse(wheel.cancel("t1"));
+        assertEquals(0, wheel.size());
+        assertNull(fired.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void rescheduleReplacesThePreviousTimeout() throws InterruptedException {
+        wheel = newWheel(8);
+        wheel.schedule("t1", Instant.now().plusMillis(30));
+        Instant later = Instant.now().plusMillis(150);
+        wheel.schedule("t1", later);
+        assertEquals(1, wheel.size());
+
+        Fired f = fired.poll(2, TimeUnit.SECONDS);
+        assertNotNull(f);
+        assertEquals(later, f.deadline);
+        assertNull(fired.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void failingHandlerDoesNotStopTheWheel() throws InterruptedException {
+        wheel = new HashedTimingWheel<>("test-wheel", TICK_MS, 8, (k, at) -> {
+            if (k.equals("boom")) throw new IllegalStateException("boom");
+            fired.add(new Fired(k, at, Instant.now()));
+        });
+        wheel.schedule("boom", Instant.now().plusMillis(20));
+        wheel.schedule("ok", Instant.now().plusMillis(60));
+
+        Fired f = fired.poll(2, TimeUnit.SECONDS);
+        assertNotNull(f);
+        assertEquals("ok", f.key);
+    }
+
+    private HashedTimingWheel<String> newWheel(int size) {
+        return new HashedTimingWheel<>("test-wheel", TICK_MS, size, (k, at) -> fired.add(new Fired(k, at, Instant.now())));
+    }
+
+    private record Fired(String key, Instant deadline, Instant firedAt) {}
+}
@@ -0,0 +1,107 @@
+package com.example.cafe_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class IntervalTreeTest {
+
+    @Test
+    void halfOpenIntervalsThatTouchDoNotOverlap() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert("a", 100, 200);
+
+        assertFalse(tree.overlapsAny(200, 300));
+        assertFalse(tree.overlapsAny(0, 100));
+        assertTrue(tree.overlapsAny(199, 300));
+        assertTrue(tree.overlapsAny(0, 101));
+        assertTrue(tree.overlapsAny(120, 150));
+        assertTrue(tree.overlapsAny(50, 250));
+        assertEquals(List.of(), tree.overlapping(200, 300));
+        assertEquals(List.of("a"), tree.overlapping(150, 160));
+    }
+
+    @Test
+    void emptyTreeOverlapsNothing() {
+        IntervalTree tree = new IntervalTree();
+        assertFalse(tree.overlapsAny(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    void removeNeedsMatchingIdAndStart() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert("a", 100, 200);
+        tree.insert("b", 100, 150);
+
+        assertFalse(tree.remove("a", 150));
+        assertFalse(tree.remove("c", 100));
+        assertTrue(tree.remove("a", 100));
+        assertEquals(1, tree.size());
+        assertTrue(tree.overlapsAny(120, 130));
+        assertFalse(tree.overlapsAny(150, 200));
+        assertTrue(tree.remove("b", 100));
+        assertFalse(tree.overlapsAny(0, 1_000));
+    }
+
+    // một khoảng dài nằm sâu bên trái phải được tìm thấy nhờ max(end), kể cả sau các phép xoay
+    @Test
+    void longIntervalOnTheLeftIsFoundAfterRotations() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert("long", 0, 10_000);
+        for (int i = 1; i <= 100; i++) {
+            tree.insert("short" + i, i * 100L, i * 100L + 10);
+        }
+
+        assertTrue(tree.overlapsAny(9_990, 9_995));
+        assertTrue(tree.remove("long", 0));
+        assertFalse(tree.overlapsAny(9_990, 9_995));
+        assertTrue(tree.overlapsAny(5_005, 5_006));
+    }
+
+    @Test
+    void matchesBruteForceUnderRandomInsertsAndRemoves() {
+        Random rnd = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<long[]> live = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        int next = 0;
+
+        for (int op = 0; op < 20_000; op++) {
+            int action = rnd.nextInt(3);
+            if (action == 0 || live.isEmpty()) {
+                long start = rnd.nextInt(10_000);
+                long end = start + 1 + rnd.nextInt(300);
+                String id = "b" + next++;
+                tree.insert(id, start, end);
+                live.add(new long[] {start, end});
+                ids.add(id);
+            } else if (action == 1) {
+                int i = rnd.nextInt(live.size());
+                assertTrue(tree.remove(ids.get(i), live.get(i)[0]));
+                live.remove(i);
+                ids.remove(i);
+            } else {
+                long start = rnd.nextInt(10_300);
+                long end = start + 1 + rnd.nextInt(300);
+                Set<String> expected = new HashSet<>();
+                for (int i = 0; i < live.size(); i++) {
+                    if (live.get(i)[0] < end && start < live.get(i)[1]) expected.add(ids.get(i));
+                }
+                assertEquals(!expected.isEmpty(), tree.overlapsAny(start, end), "query [" + start + ", " + end + ")");
+                List<String> found = tree.overlapping(start, end);
+                assertEquals(expected.size(), found.size());
+                assertEquals(expected, new HashSet<>(found));
+            }
+            assertEquals(live.size(), tree.size());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.cafe_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.InMemoryMongo;
+import com.example.cafe_backend.dto.CreateOrderRequest;
+import com.example.cafe_backend.dto.OrderItemRequest;
+import com.example.cafe_backend.model.CafeTable;
+import com.example.cafe_backend.model.FulfillmentStatus;
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.OrderStatus;
+import com.example.cafe_backend.model.PaymentStatus;
+import com.example.cafe_backend.model.Product;
+import com.example.cafe_backend.model.TableStatus;
+import com.example.cafe_backend.repository.CafeTableRepository;
+import com.example.cafe_backend.repository.CafeTableRepositoryCustomImpl;
+import com.example.cafe_backend.repository.MaintenanceJobStateRepository;
+import com.example.cafe_backend.repository.OrderMoneyFields;
+import com.example.cafe_backend.repository.OrderRepository;
+import com.example.cafe_backend.repository.OrderRepositoryCustomImpl;
+import com.example.cafe_backend.repository.ProductRepository;
+
+class OrderServiceTest {
+    private InMemoryMongo mongo;
+    private OrderRepository orders;
+    private CafeTableRepository tables;
+    private OrderService service;
+    private Product coffee;
+    private int nextNumber = 1;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        var template = mongo.template();
+        OrderMoneyFields money = new OrderMoneyFields(mongo.repository(MaintenanceJobStateRepository.class));
+        orders = mongo.repository(OrderRepository.class, new OrderRepositoryCustomImpl(template, money));
+        tables = mongo.repository(CafeTableRepository.class, new CafeTableRepositoryCustomImpl(template));
+        ProductRepository products = mongo.repository(ProductRepository.class);
+        coffee = products.insert(Product.builder().name("Cà phê sữa").price(new BigDecimal("30000")).build());
+
+        // bookingService mock trả null = bàn không bị booking chặn
+        service = new OrderService(orders, tables, new MenuCatalog(products), mock(TableOccupancyService.class),
+                mock(BookingService.class), mock(ApplicationEventPublisher.class));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("alice", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        mongo.close();
+    }
+
+    // index unique cũ trên idempotencyKey (chưa drop) làm insert lỗi với key của user khác:
+    // claim phải được hoàn tác, bàn không bị kẹt OCCUPIED trỏ tới order không tồn tại
+    @Test
+    void insertFailureReleasesTheClaimedTable() {
+        mongo.template().indexOps(Order.class).ensureIndex(
+                new Index().on("idempotencyKey", Sort.Direction.ASC).unique().sparse());
+        CafeTable t = table();
+        CafeTable other = table();
+        Order bobs = service.createOrder(request(other), "bob", "key-1");
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.createOrder(request(t), "alice", "key-1"));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        CafeTable stored = tables.findById(t.getId()).orElseThrow();
+        assertEquals(TableStatus.AVAILABLE, stored.getStatus());
+        assertNull(stored.getCurrentOrderId());
+        assertNull(stored.getGuestCount());
+        assertEquals(1, orders.count());
+        assertEquals(bobs.getId(), tables.findById(other.getId()).orElseThrow().getCurrentOrderId());
+    }
+
+    // cùng user gửi lại cùng key: nhận lại order cũ, không chiếm thêm bàn
+    @Test
+    void retryWithSameKeyReturnsTheExistingOrder() {
+        CafeTable t = table();
+        Order first = service.createOrder(request(t), "alice", "key-1");
+
+        Order again = service.createOrder(request(table()), "alice", "key-1");
+
+        assertEquals(first.getId(), again.getId());
+        assertEquals(1, orders.count());
+        assertEquals(1, mongo.template().getCollection("tables")
+                .countDocuments(new Document("status", TableStatus.OCCUPIED.name())));
+    }
+
+    @Test
+    void secondPaymentIsRejectedAndKeepsFirstPaidAt() {
+        Order o = service.createOrder(request(table()), "alice", null);
+        Order paid = service.markPaid(o.getId());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.markPaid(o.getId()));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals(paid.getPaidAt(), orders.findById(o.getId()).orElseThrow().getPaidAt());
+    }
+
+    // 2 thu ngân bấm thanh toán cùng lúc: chỉ 1 findAndModify khớp guard UNPAID
+    @Test
+    void concurrentPaymentsHaveExactlyOneWinner() throws Exception {
+        Order o = service.createOrder(request(table()), "alice", null);
+        int n = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < n; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        service.markPaid(o.getId());
+                        return true;
+                    } catch (ResponseStatusException e) {
+                        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (Future<Boolean> f : results) {
+                if (f.get()) winners++;
+            }
+            assertEquals(1, winners);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void paidOrderCannotBeCancelled() {
+        CafeTable t = table();
+        Order o = service.createOrder(request(t), "alice", null);
+        service.markPaid(o.getId());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.cancel(o.getId()));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        Order stored = orders.findById(o.getId()).orElseThrow();
+        assertEquals(OrderStatus.PAID, stored.getStatus());
+        assertEquals(PaymentStatus.PAID, stored.getPaymentStatus());
+        assertEquals(TableStatus.AVAILABLE, tables.findById(t.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void cancelledOrderCannotBePaidAndFreesTheTable() {
+        CafeTable t = table();
+        Order o = service.createOrder(request(t), "alice", null);
+        service.cancel(o.getId());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.markPaid(o.getId()));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals(PaymentStatus.UNPAID, orders.findById(o.getId()).orElseThrow().getPaymentStatus());
+        assertEquals(TableStatus.AVAILABLE, tables.findById(t.getId()).orElseThrow().getStatus());
+    }
+
+    // chỉ đi tiến: có thể bỏ bước, không quay lại bước trước hay lặp lại bước hiện tại
+    @Test
+    void fulfillmentOnlyMovesForward() {
+        Order o = service.createOrder(request(table()), "alice", null);
+        service.markPreparing(o.getId());
+
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> service.markConfirmed(o.getId())).getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> service.markPreparing(o.getId())).getStatusCode());
+        assertEquals(FulfillmentStatus.READY, service.markReady(o.getId()).getFulfillmentStatus());
+    }
+
+    @Test
+    void unknownOrderIsNotFound() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.markPaid(new ObjectId().toHexString()));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    // đơn cũ chưa có fulfillmentStatus/paymentStatus: guard coi field thiếu là PENDING/UNPAID
+    @Test
+    void legacyOrderWithoutStatusFieldsCanStillAdvance() {
+        String id = new ObjectId().toHexString();
+        mongo.template().getCollection("orders").insertOne(new Document("_id", new ObjectId(id))
+                .append("tableId", "legacy-table")
+                .append("status", OrderStatus.PENDING.name())
+                .append("guestCount", 2));
+
+        assertEquals(FulfillmentStatus.CONFIRMED, service.markConfirmed(id).getFulfillmentStatus());
+        assertEquals(PaymentStatus.PAID, service.markPaid(id).getPaymentStatus());
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> service.markPaid(id)).getStatusCode());
+    }
+
+    @Test
+    void legacyOrderWithoutStatusFieldsCanBeCancelled() {
+        String id = new ObjectId().toHexString();
+        mongo.template().getCollection("orders").insertOne(new Document("_id", new ObjectId(id))
+                .append("tableId", "legacy-table")
+                .append("status", OrderStatus.PENDING.name())
+                .append("guestCount", 2));
+
+        Order cancelled = service.cancel(id);
+
+        assertEquals(FulfillmentStatus.CANCELLED, cancelled.getFulfillmentStatus());
+        assertEquals(OrderStatus.CANCELLED, cancelled.getStatus());
+    }
+
+    private CafeTable table() {
+        return tables.insert(CafeTable.builder().tableNumber(nextNumber++).capacity(4).version(0L).build());
+    }
+
+    private CreateOrderRequest request(CafeTable t) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(coffee.getId());
+        item.setQuantity(2);
+        CreateOrderRequest req = new CreateOrderRequest();
+        req.setTableId(t.getId());
+        req.setGuestCount(2);
+        req.setItems(List.of(item));
+        return req;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.cafe_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.cafe_backend.InMemoryMongo;
+import com.example.cafe_backend.dto.BulkProductResult;
+import com.example.cafe_backend.dto.BulkProductResult.Status;
+import com.example.cafe_backend.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ProductBulkServiceTest {
+    private static final String CSV = "text/csv";
+
+    private InMemoryMongo mongo;
+    private ProductBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        service = new ProductBulkService(mongo.template(), new ObjectMapper(), mock(MenuCatalog.class),
+                mock(ProductSearchIndex.class), mock(ProductImageService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void csvQuotedFieldsKeepCommasNewlinesAndEscapedQuotes() {
+        BulkProductResult r = importCsv("name,description,price\n"
+                + "\"Cà phê, sữa\",\"2 dòng\nmô tả \"\"ngon\"\"\",35000\n", false);
+
+        assertEquals(1, r.getCreated());
+        Product p = products().get(0);
+        assertEquals("Cà phê, sữa", p.getName());
+        assertEquals("2 dòng\nmô tả \"ngon\"", p.getDescription());
+        assertEquals(0, new BigDecimal("35000").compareTo(p.getPrice()));
+    }
+
+    @Test
+    void csvHeaderMayHaveBomAnyOrderAndCrLf() {
+        BulkProductResult r = importCsv("\uFEFFAvailable,Price,name\r\nno,20000,Bạc xỉu\r\nyes,15000,\"Trà đá\"", false);
+
+        assertEquals(2, r.getCreated());
+        List<Product> ps = products();
+        assertEquals("Bạc xỉu", ps.get(0).getName());
+        assertEquals(false, ps.get(0).isAvailable());
+        assertEquals("Trà đá", ps.get(1).getName());
+        assertEquals(true, ps.get(1).isAvailable());
+    }
+
+    // ô rỗng = giữ nguyên field; không có id thì upsert theo tên (không phân biệt hoa thường/khoảng trắng)
+    @Test
+    void emptyCellsLeaveFieldsAloneWhenUpsertingByName() {
+        importCsv("name,description,price\nCà phê đen,Robusta,25000\n", false);
+
+        BulkProductResult r = importCsv("name,description,price\n  CÀ PHÊ   đen ,,28000\n", false);
+
+        assertEquals(1, r.getUpdated());
+        Product p = products().get(0);
+        assertEquals("Robusta", p.getDescription());
+        assertEquals(0, new BigDecimal("28000").compareTo(p.getPrice()));
+    }
+
+    @Test
+    void unorderedImportWritesValidRowsAndReportsBadOnes() {
+        BulkProductResult r = importCsv("name,price,available\nA,abc,true\nB,10,maybe\nC,5,0\nC,6,1\n", false);
+
+        assertEquals(List.of(Status.INVALID, Status.INVALID, Status.CREATED, Status.INVALID), statuses(r));
+        assertEquals("Invalid price: abc", r.getRows().get(0).getError());
+        assertEquals("Invalid available: maybe", r.getRows().get(1).getError());
+        assertEquals("Duplicate name in import (row 3)", r.getRows().get(3).getError());
+        assertEquals(1, products().size());
+    }
+
+    @Test
+    void orderedImportWritesNothingWhenAnyRowIsInvalid() {
+        BulkProductResult r = importCsv("name,price\nA,1\nB,-1\n", true);
+
+        assertEquals(List.of(Status.SKIPPED, Status.INVALID), statuses(r));
+        assertEquals(0, products().size());
+    }
+
+    @Test
+    void rowsWithIdUpdateThatProduct() {
+        importCsv("name,price\nLatte,40000\n", false);
+        String id = products().get(0).getId();
+
+        BulkProductResult r = importCsv("id,name,price\n" + id + ",Latte đá,42000\nmissing,X,1\n", false);
+
+        assertEquals(List.of(Status.UPDATED, Status.INVALID), statuses(r));
+        assertEquals("Product not found", r.getRows().get(1).getError());
+        assertEquals("Latte đá", products().get(0).getName());
+    }
+
+    @Test
+    void jsonArrayIsImportedToo() {
+        String json = "[{\"name\":\"Espresso\",\"price\":30000},{\"name\":\"Americano\",\"price\":35000,\"available\":false}]";
+        BulkProductResult r = service.importStream(stream(json), "application/json", false);
+
+        assertEquals(2, r.getCreated());
+        assertEquals(2, products().size());
+    }
+
+    @Test
+    void rejectsMalformedHeaders() {
+        assertBadRequest("name,colour\nA,red\n");
+        assertBadRequest("price\n1\n");
+        assertBadRequest("");
+    }
+
+    private void assertBadRequest(String csv) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> importCsv(csv, false));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    private BulkProductResult importCsv(String csv, boolean ordered) {
+        return service.importStream(stream(csv), CSV, ordered);
+    }
+
+    private List<Product> products() {
+        return mongo.template().find(new Query().with(Sort.by("createdAt", "name")), Product.class);
+    }
+
+    private static List<Status> statuses(BulkProductResult r) {
+        return r.getRows().stream().map(BulkProductResult.Row::getStatus).toList();
+    }
+
+    private static ByteArrayInputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.cafe_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.cafe_backend.model.Product;
+
+// put/remove/search chỉ dùng index trong RAM nên không cần Mongo
+class ProductSearchIndexTest {
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(null, null);
+        index.put(product("1", "Cà phê sữa đá", "Cà phê phin với sữa đặc", true));
+        index.put(product("2", "Cà phê đen", "Robusta rang mộc", true));
+        index.put(product("3", "Trà đào cam sả", "Trà đen, đào ngâm", true));
+        index.put(product("4", "Bạc xỉu", "Nhiều sữa, ít cà phê", false));
+    }
+
+    @Test
+    void matchesWithoutDiacritics() {
+        assertEquals(List.of("1", "2"), ids(index.search("ca phe", 10, false)));
+    }
+
+    @Test
+    void matchesWordPrefixes() {
+        assertEquals(List.of("3"), ids(index.search("tra da", 10, false)));
+        assertEquals(List.of("1"), ids(index.search("sua", 10, false)));
+    }
+
+    @Test
+    void exactNameRanksFirst() {
+        List<ProductSearchIndex.SearchHit> hits = index.search("cà phê đen", 10, false);
+        assertEquals("2", hits.get(0).getId());
+    }
+
+    // "cafe" không phải tiền tố của từ nào, chỉ khớp gần đúng qua trigram
+    @Test
+    void toleratesMisspellingsThroughTrigrams() {
+        assertEquals("1", index.search("cafe sữa", 10, false).get(0).getId());
+        assertTrue(ids(index.search("dao", 10, false)).contains("3"));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        assertEquals(List.of(), index.search("ca phe xyzzy", 10, false));
+        assertEquals(List.of(), index.search("   ", 10, false));
+    }
+
+    @Test
+    void unavailableProductsAreHiddenUnlessAsked() {
+        assertEquals(List.of(), ids(index.search("bac xiu", 10, false)));
+        assertEquals(List.of("4"), ids(index.search("bac xiu", 10, true)));
+    }
+
+    @Test
+    void putReplacesAndRemoveDropsAProduct() {
+        index.put(product("2", "Americano", "Espresso pha loãng", true));
+        assertEquals(List.of("1"), ids(index.search("ca phe", 10, false)));
+        assertEquals(List.of("2"), ids(index.search("ameri", 10, false)));
+
+        index.remove("2");
+        assertEquals(List.of(), index.search("americano", 10, false));
+    }
+
+    @Test
+    void respectsTheLimit() {
+        assertEquals(1, index.search("ca phe", 1, true).size());
+    }
+
+    private static Product product(String id, String name, String description, boolean available) {
+        return Product.builder().id(id).name(name).description(description)
+                .price(new BigDecimal("30000")).available(available).build();
+    }
+
+    private static List<String> ids(List<ProductSearchIndex.SearchHit> hits) {
+        return hits.stream().map(ProductSearchIndex.SearchHit::getId).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.cafe_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.text.Normalizer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TextNormalizerTest {
+
+    @Test
+    void foldStripsVietnameseDiacriticsIncludingDStroke() {
+        assertEquals("ca phe sua da", TextNormalizer.fold("Cà phê sữa đá"));
+        assertEquals("duong den", TextNormalizer.fold("ĐƯỜNG ĐEN"));
+        assertEquals("tra dao cam sa", TextNormalizer.fold("Trà đào cam sả"));
+        assertEquals("banh mi op la", TextNormalizer.fold("Bánh mì ốp la"));
+    }
+
+    // chuỗi dựng sẵn (NFC) và chuỗi tổ hợp dấu rời (NFD) phải ra cùng 1 khóa
+    @Test
+    void foldTreatsComposedAndDecomposedInputAlike() {
+        String composed = "Cà phê trứng";
+        String decomposed = Normalizer.normalize(composed, Normalizer.Form.NFD);
+        assertNotEquals(composed, decomposed);
+        assertEquals(TextNormalizer.fold(composed), TextNormalizer.fold(decomposed));
+    }
+
+    @Test
+    void foldCollapsesPunctuationAndSpaces() {
+        assertEquals("ca phe 2 shot", TextNormalizer.fold("  Cà-phê (2 shot)!! "));
+        assertEquals("", TextNormalizer.fold(null));
+        assertEquals("", TextNormalizer.fold(" -- "));
+    }
+
+    @Test
+    void normalizedNameKeepsDiacriticsButIgnoresCaseAndSpacing() {
+        assertEquals("cà phê sữa", TextNormalizer.normalizedName("  Cà   PHÊ sữa "));
+        assertEquals(TextNormalizer.normalizedName("Cà phê"),
+                TextNormalizer.normalizedName(Normalizer.normalize("CÀ PHÊ", Normalizer.Form.NFD)));
+        assertNotEquals(TextNormalizer.normalizedName("Cà phê"), TextNormalizer.normalizedName("Cá phê"));
+        assertNull(TextNormalizer.normalizedName(null));
+    }
+
+    @Test
+    void tokensSplitFoldedText() {
+        assertEquals(List.of("ca", "phe"), TextNormalizer.tokens("ca phe"));
+        assertEquals(List.of(), TextNormalizer.tokens(""));
+        assertEquals(List.of(), TextNormalizer.tokens(null));
+    }
+}
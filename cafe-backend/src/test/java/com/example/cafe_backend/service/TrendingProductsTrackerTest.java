@@ -0,0 +1,117 @@
+package com.example.cafe_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.cafe_backend.event.OrderChangedEvent;
+import com.example.cafe_backend.model.Order;
+import com.example.cafe_backend.model.OrderItem;
+
+class TrendingProductsTrackerTest {
+    private static final Instant NOW = Instant.parse("2026-10-17T10:30:30Z");
+
+    private final TrendingProductsTracker tracker = new TrendingProductsTracker();
+
+    @Test
+    void countsAreExactWhileASliceHasRoom() {
+        tracker.record("latte", "Latte", 3, NOW);
+        tracker.record("latte", "Latte", 2, NOW.minusSeconds(60));
+        tracker.record("tea", "Trà đào", 4, NOW);
+
+        List<TrendingProductsTracker.TrendingItem> top = tracker.top(15, 10, NOW);
+
+        assertEquals(2, top.size());
+        assertEquals("latte", top.get(0).getProductId());
+        assertEquals(5, top.get(0).getQuantity());
+        assertEquals(0, top.get(0).getMaxError());
+        assertEquals("Trà đào", top.get(1).getName());
+        assertEquals(4, top.get(1).getQuantity());
+    }
+
+    @Test
+    void ignoresMinutesOutsideTheWindow() {
+        tracker.record("old", "Old", 10, NOW.minusSeconds(20 * 60));
+        tracker.record("new", "New", 1, NOW);
+
+        assertEquals(List.of("new"), ids(tracker.top(15, 10, NOW)));
+        assertEquals(List.of("old", "new"), ids(tracker.top(60, 10, NOW)));
+    }
+
+    // ring quay hết 1 vòng: slice của 60 phút trước bị dùng lại cho phút hiện tại
+    @Test
+    void reusedSliceForgetsTheOldMinute() {
+        tracker.record("old", "Old", 10, NOW.minusSeconds(60 * 60));
+        tracker.record("new", "New", 1, NOW);
+
+        assertEquals(List.of("new"), ids(tracker.top(60, 10, NOW)));
+    }
+
+    @Test
+    void ignoresEmptyProductAndNonPositiveQuantity() {
+        tracker.record(null, "x", 5, NOW);
+        tracker.record("zero", "Zero", 0, NOW);
+
+        assertTrue(tracker.top(15, 10, NOW).isEmpty());
+    }
+
+    // quá 64 sản phẩm trong 1 phút: Space-Saving vẫn phải đảm bảo số thật nằm trong [quantity - maxError, quantity]
+    @Test
+    void evictionKeepsTrueCountsWithinTheReportedBounds() {
+        Random rnd = new Random(7);
+        Map<String, Long> truth = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            // vài món bán chạy + đuôi dài 300 món lẻ tẻ, rải trên 3 phút
+            String id = rnd.nextInt(4) == 0 ? "hot" + rnd.nextInt(3) : "p" + rnd.nextInt(300);
+            long qty = 1 + rnd.nextInt(3);
+            tracker.record(id, id, qty, NOW.minusSeconds(60L * rnd.nextInt(3)));
+            truth.merge(id, qty, Long::sum);
+        }
+
+        List<TrendingProductsTracker.TrendingItem> top = tracker.top(15, 500, NOW);
+
+        for (TrendingProductsTracker.TrendingItem it : top) {
+            long actual = truth.get(it.getProductId());
+            assertTrue(actual <= it.getQuantity(), it.getProductId() + " upper bound " + it.getQuantity() + " < " + actual);
+            assertTrue(actual >= it.getQuantity() - it.getMaxError(),
+                    it.getProductId() + " lower bound " + (it.getQuantity() - it.getMaxError()) + " > " + actual);
+        }
+        assertTrue(ids(top.subList(0, 3)).stream().allMatch(id -> id.startsWith("hot")), "top 3: " + ids(top.subList(0, 3)));
+    }
+
+    @Test
+    void cancelledOrdersStopCounting() {
+        Order order = Order.builder()
+                .createdAt(NOW.minusSeconds(120))
+                .items(List.of(OrderItem.builder().productId("latte").name("Latte").quantity(3).build(),
+                        OrderItem.builder().productId("tea").name("Trà đào").quantity(1).build()))
+                .build();
+        tracker.record("latte", "Latte", 2, NOW);
+
+        tracker.onOrderChanged(new OrderChangedEvent(OrderChangedEvent.Type.CREATED, order));
+        assertEquals(5, tracker.top(15, 10, NOW).get(0).getQuantity());
+
+        tracker.onOrderChanged(new OrderChangedEvent(OrderChangedEvent.Type.CANCELLED, order));
+        List<TrendingProductsTracker.TrendingItem> top = tracker.top(15, 10, NOW);
+        assertEquals(List.of("latte"), ids(top));
+        assertEquals(2, top.get(0).getQuantity());
+    }
+
+    @Test
+    void limitsTheNumberOfItems() {
+        for (int i = 0; i < 10; i++) tracker.record("p" + i, "P" + i, i + 1, NOW);
+
+        assertEquals(List.of("p9", "p8", "p7"), ids(tracker.top(15, 3, NOW)));
+    }
+
+    private static List<String> ids(List<TrendingProductsTracker.TrendingItem> items) {
+        return items.stream().map(TrendingProductsTracker.TrendingItem::getProductId).toList();
+    }
+}
@@ -19,12 +19,10 @@ export default function Reports() {
   }
   const loadRange = async () => {
     try {
-      const [sum, tops] = await Promise.all([
-        api.rangeReport(start, end),
-        api.topProducts(start, end, 10),
-      ])
-      setSummary(sum)
-      setTop(tops)
+      // 1 request: tổng + top sản phẩm từ cùng một aggregation
+      const d = await api.dashboardReport(start, end, 10)
+      setSummary(d.totals)
+      setTop(d.topProducts)
     } catch (e) { setError(e.message) }
   }
 